@@ -0,0 +1,55 @@
+package frc.robot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes of heap the current thread allocates, for keeping GC pauses off the loops.
+ * Reading the count allocates a little itself, which {@link #getAllocatedSince(long)} leaves out.
+ *
+ * <p>Relies on the HotSpot extension to {@link ThreadMXBean}. On a JVM without it every count reads
+ * as zero.
+ */
+public final class AllocationCounter {
+  private static final com.sun.management.ThreadMXBean threads;
+  private static final long readOverhead;
+
+  static {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      threads = (com.sun.management.ThreadMXBean) bean;
+      threads.setThreadAllocatedMemoryEnabled(true);
+    } else {
+      threads = null;
+    }
+
+    // Take the smallest of a few back-to-back reads, once the read itself is loaded and warm
+    long overhead = Long.MAX_VALUE;
+    for (int i = 0; i < 16; i++) {
+      long start = getAllocatedBytes();
+      overhead = Math.min(overhead, getAllocatedBytes() - start);
+    }
+    readOverhead = overhead;
+  }
+
+  private AllocationCounter() {}
+
+  /** @return true if this JVM can count allocations */
+  public static boolean isSupported() {
+    return threads != null;
+  }
+
+  /** @return the bytes the current thread has allocated since it started */
+  public static long getAllocatedBytes() {
+    return threads != null ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+  }
+
+  /**
+   * @param start a count from {@link #getAllocatedBytes()} on this thread
+   * @return the bytes this thread has allocated since that count, not counting the reads
+   */
+  public static long getAllocatedSince(long start) {
+    return Math.max(0, getAllocatedBytes() - start - readOverhead);
+  }
+}
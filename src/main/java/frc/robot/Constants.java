@@ -3,8 +3,65 @@ package frc.robot;
 import edu.wpi.first.wpilibj.kinematics.DifferentialDriveKinematics;
 import edu.wpi.first.wpilibj.util.Units;
 import frc.robot.subsystems.Limelight.Pipeline;
+import frc.robot.subsystems.StatusFrameProfile;
 
 public final class Constants {
+  public static final class CANConstants {
+    // Unchanged setpoints are still resent this often
+    public static final double kKeepAliveSeconds = 0.25;
+
+    // Used to estimate bus load. An extended frame with 8 data bytes, allowing for bit stuffing
+    public static final double kBusBitsPerSecond = 1e6;
+    public static final double kBitsPerFrame = 150;
+
+    // Status frame periods in ms: status 0 (applied output), 1 (velocity) and 2 (position)
+    public static final StatusFrameProfile kUnreadFrames = new StatusFrameProfile(100, 500, 500);
+    public static final StatusFrameProfile kDriveIdleFrames = new StatusFrameProfile(10, 100, 20);
+    public static final StatusFrameProfile kDriveFrames = new StatusFrameProfile(10, 10, 10);
+    public static final StatusFrameProfile kFlywheelIdleFrames =
+        new StatusFrameProfile(10, 100, 500);
+    public static final StatusFrameProfile kFlywheelFrames =
+        new StatusFrameProfile(10, ShooterConstants.kFlywheelVelocityFramePeriodMs, 500);
+    public static final StatusFrameProfile kAcceleratorIdleFrames =
+        new StatusFrameProfile(100, 100, 500);
+    public static final StatusFrameProfile kAcceleratorFrames =
+        new StatusFrameProfile(100, 20, 500);
+    public static final StatusFrameProfile kTelescopeFrames = new StatusFrameProfile(100, 500, 20);
+  }
+
+  public static final class LoopConstants {
+    // Odometry, sensor sampling and fast control loops run on their own thread at this period
+    public static final double kControlPeriodSeconds = 0.005;
+    // The main loop, which runs the command scheduler
+    public static final double kCommandPeriodSeconds = 0.02;
+    public static final double kTelemetryPeriodSeconds = 0.1;
+
+    // Loop profiler: sections past the limit are still timed, but left out of overrun breakdowns
+    public static final int kMaxProfiledSections = 48;
+    public static final int kOverrunFramesKept = 16;
+    public static final double kProfilerPublishSeconds = 1.0;
+
+    // Heap each rate group may allocate per run once a mode has settled. Our own tasks allocate
+    // nothing. While heading alignment runs, its ProfiledPIDController builds a TrapezoidProfile
+    // and its states every control loop, a couple of hundred bytes. WPILib's command scheduler
+    // allocates iterators over its subsystems, buttons and commands every loop
+    public static final long kControlAllocationBudgetBytes = 512;
+    public static final long kCommandAllocationBudgetBytes = 4096;
+    public static final long kTelemetryAllocationBudgetBytes = 0;
+    public static final double kAllocationSettleSeconds = 2.0;
+    // Budget per simulated loop for the allocation check, which runs only our own tasks
+    public static final long kCheckedLoopAllocationBudgetBytes = 0;
+  }
+
+  public static final class SensorConstants {
+    // The sampler runs in the control loop, and reads each sensor on the ticks it is due
+    public static final int kMaxChannels = 32;
+
+    public static final double kFlywheelPeriodSeconds = 0.005;
+    public static final double kAcceleratorPeriodSeconds = 0.02;
+    public static final double kTelescopePeriodSeconds = 0.02;
+  }
+
   public static final class RobotMap {
     // Drivetrain
     public static int kDriveMotorLeft1 = 1;
@@ -48,6 +105,19 @@ public final class Constants {
     public static final double kvVoltSecondsPerMeter = 2.45;
     public static final double kaVoltSecondsSquaredPerMeter = 0.495;
     public static final double kPDriveVel = 1.91;
+    // The same gain for the motor controllers' onboard loops, which work in duty cycle
+    public static final double kPDriveVelOnboard = kPDriveVel / 12.0;
+
+    // How far back poses are remembered for latency-compensated vision
+    public static final double kPoseHistorySeconds = 1.0;
+    public static final int kPoseHistorySize =
+        (int) Math.ceil(kPoseHistorySeconds / LoopConstants.kControlPeriodSeconds);
+
+    // Field pose estimation: how quickly odometry drift accumulates, and how unsure the field pose
+    // is before the first vision fix
+    public static final double kOdometryVariancePerMeter = 0.0025;
+    public static final double kOdometryHeadingVariancePerRadian = 0.0005;
+    public static final double kInitialFieldPoseVariance = 100.0;
 
     // Motor config
     public static final int kCurrentLimit = 60;
@@ -59,16 +129,33 @@ public final class Constants {
     public static final double kMaxSpeedMetersPerSecond = Units.feetToMeters(5);
     public static final double kMaxAccelerationMetersPerSecondSquared = Units.feetToMeters(8);
     public static final double kAutoMaxDriveVoltage = 10;
+    // How far chained paths' speeds may disagree where they meet before it is reported
+    public static final double kChainVelocityToleranceMetersPerSecond = 0.05;
 
     // Reasonable baseline values for a RAMSETE follower in units of meters and seconds
     public static final double kRamseteB = 2.0;
     public static final double kRamseteZeta = 0.7;
+
+    // Trajectories are resampled at this period for constant-time lookup while following
+    public static final double kTrajectorySampleSeconds = 0.005;
+
+    // How long before arriving at a shot to start spinning up the shooter
+    public static final double kShooterSpinUpLeadSeconds = 1.5;
+
+    // Trajectory cache
+    public static final int kTrajectoryCacheSize = 32;
+    public static final boolean kUseTrajectoryDiskCache = true;
+    public static final String kTrajectoryDiskCacheDirectory = "/home/lvuser/trajectory-cache";
+    // Files kept in the on-disk tier, each a few tens of kilobytes
+    public static final int kTrajectoryDiskCacheMaxFiles = 64;
   }
 
   public static final class ShooterConstants {
     // Physical details
     public static final double kFlywheelGearRatio = 1.0;
     public static final double kFlywheelMaxRPM = 5_880 / kFlywheelGearRatio;
+    // Accelerator speeds are at its output shaft. The presets and shot map ask for more than its
+    // free speed, which the shooter clamps to, so they run it flat out as they always have
     public static final double kAcceleratorGearRatio = 6.0;
     public static final double kAcceleratorMaxRPM = 11_000 / kAcceleratorGearRatio;
 
@@ -78,17 +165,47 @@ public final class Constants {
     public static final double kAcceptableRPMRange = 50;
     public static final double kAcceleratorRPMWall = 6_000;
     public static final double kAcceleratorRPMAutoLine = 4_500;
-    public static final double kSpinUpSeconds = 1.75;
+    public static final double kWallShotDistanceMeters = 0.6;
+    public static final double kAutoLineDistanceMeters = 3.0;
+    // Shot readiness: speeds must hold for this many loops in a row, and the hood must have had
+    // this long to settle since it last moved
+    public static final int kReadySamples = 5;
+    public static final double kAcceleratorAcceptableRPMRange = 150;
+    public static final double kHoodSettleSeconds = 0.3;
+    public static final double kReadyTimeoutSeconds = 3.0;
+
+    // Standby speed held between shots, and the battery voltages below which it is dropped and
+    // above which it comes back
+    public static final double kStandbyRPM = 2_500;
+    public static final double kStandbyShedVolts = 10.5;
+    public static final double kStandbyResumeVolts = 11.5;
+
+    // Take the shooter's setpoints from the dashboard instead of from commands, for tuning
+    public static final boolean kEnableLivePIDTuning = false;
+
     public static final double kCurrentDrawnToDetectCompletedShot = 10;
-    public static final double kCurrentDrawnTimeWindow = 0.075;
+    public static final double kShotSignatureWindowSeconds = 0.075;
     public static final double kLowRPMThreshold = 1_500;
     public static final double kLowRPMRampRate = 0.25;
+    // A drop this far below the setpoint means a ball has gone through
+    public static final double kShotDetectionRPMDrop = 150;
+    // After a shot, the flywheel must climb this far back up before another can be detected
+    public static final double kShotRearmRPM = 50;
+    public static final int kShotTraceSize = 3_000;
+    public static final String kShotTraceDirectory = "/home/lvuser/shot-traces";
+    // How late a detection may be and still count as the labeled shot, when replaying traces
+    public static final double kShotReplayMatchSeconds = 0.25;
 
     // Motor config
     public static final int kFlywheelCurrentLimit = 45; // 5 above breaker limit
     public static final int kAcceleratorCurrentLimit = 35; // 5 above breaker limit
     public static final double kFlywheelkP = 0.000050;
-    public static final double kFlywheelkF = 0.000165;
+    public static final double kFlywheelkS = 0.0; // Volts
+    public static final double kFlywheelkV = 0.000165 * 12.0; // Volts per RPM
+    public static final double kAcceleratorkP = 0.0001;
+    public static final double kAcceleratorkS = 0.1; // Volts
+    public static final double kAcceleratorkV = 12.0 / kAcceleratorMaxRPM; // Volts per RPM
+    public static final int kFlywheelVelocityFramePeriodMs = 5;
   }
 
   public static final class IntakeConstants {
@@ -102,6 +219,9 @@ public final class Constants {
     public static final double kLeftUnjamFeedSpeed = -0.3;
     public static final double kRightUnjamFeedSpeed = -0.3;
     public static final int kHopperCurrentLimit = 35; // 5 above breaker limit
+
+    // Metered feeding waits for the flywheel to recover between shots
+    public static final double kMeteredFeedRecoverySpeed = 0.0;
   }
 
   public static final class ClimberConstants {
@@ -120,6 +240,40 @@ public final class Constants {
     public static final double kAlignmentAcceptableError = 0.3;
     public static final double kTargetLimelightOffset = 0.0;
 
+    // Gyro setpoint alignment: vision sets a heading target, which is tracked on the gyro with a
+    // motion profile at a faster rate than the camera
+    public static final boolean kUseGyroAlignment = true;
+    public static final double kGyroAlignmentkP = 0.3; // Volts per degree
+    public static final double kGyroAlignmentkD = 0.01; // Volts per degree per second
+    public static final double kMaxAlignmentTurnRate = 180.0; // Degrees per second
+    public static final double kMaxAlignmentTurnAcceleration = 720.0; // Degrees per second squared
+    public static final double kAlignmentRateTolerance = 2.0; // Degrees per second
+    // Give up aligning if no target is seen this soon, or if alignment hasn't settled this soon
+    public static final double kAlignmentNoTargetSeconds = 0.5;
+    public static final double kAlignmentTimeoutSeconds = 3.0;
+
     public static final Pipeline kShotPipeline = Pipeline.PIPELINE0;
+
+    // Image capture latency on top of the reported pipeline latency
+    public static final double kCaptureLatencyMs = 11.0;
+    // Frames older than this are treated as lost
+    public static final double kFrameStaleSeconds = 0.1;
+
+    // Where the camera is mounted, relative to the center of the robot. PLACEHOLDERS: none of
+    // these have been measured on the robot yet, and every vision distance and pose fix depends on
+    // them, so measure them before trusting either
+    public static final double kCameraForwardMeters = 0.25;
+    public static final double kCameraLeftMeters = 0.0;
+    public static final double kCameraYawRadians = 0.0;
+    public static final double kCameraHeightMeters = 0.6;
+    public static final double kCameraPitchDegrees = 25.0;
+
+    // Height of the center of the vision target
+    public static final double kTargetHeightMeters = 2.49;
+
+    // Vision pose fixes
+    public static final double kVisionTranslationStdDevMeters = 0.15;
+    public static final double kVisionHeadingStdDevRadians = Math.toRadians(3.0);
+    public static final double kVisionOutlierGate = 3.0;
   }
 }
@@ -0,0 +1,86 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Counts how long something took in fixed, geometrically spaced buckets, so recording a time never
+ * allocates. Percentiles are reported as the upper edge of the bucket they fall in, which is within
+ * a quarter of the true value.
+ */
+public final class LatencyHistogram {
+  private static final double kSmallestBucketSeconds = 10e-6;
+  private static final double kBucketRatio = 1.25;
+  private static final double[] kBucketLimits = new double[48];
+
+  static {
+    double limit = kSmallestBucketSeconds;
+    for (int i = 0; i < kBucketLimits.length; i++) {
+      kBucketLimits[i] = limit;
+      limit *= kBucketRatio;
+    }
+  }
+
+  // The last bucket catches everything longer than the largest limit
+  private final int[] counts = new int[kBucketLimits.length + 1];
+  private int total;
+  private double max;
+  private final String p50Key, p99Key, maxKey;
+
+  /** @param name shown on the dashboard */
+  public LatencyHistogram(String name) {
+    p50Key = "Loop " + name + " p50 (ms)";
+    p99Key = "Loop " + name + " p99 (ms)";
+    maxKey = "Loop " + name + " max (ms)";
+  }
+
+  /** @param seconds how long one run took */
+  public synchronized void record(double seconds) {
+    int bucket = 0;
+    while (bucket < kBucketLimits.length && seconds > kBucketLimits[bucket]) {
+      bucket++;
+    }
+    counts[bucket]++;
+    total++;
+    if (seconds > max) {
+      max = seconds;
+    }
+  }
+
+  /**
+   * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+   * @return the time that fraction of runs finished within, in seconds, or 0 if nothing has been
+   *     recorded
+   */
+  public synchronized double getPercentile(double fraction) {
+    int target = (int) Math.ceil(fraction * total);
+    int seen = 0;
+    for (int i = 0; i < kBucketLimits.length; i++) {
+      seen += counts[i];
+      if (seen >= target && seen > 0) {
+        return Math.min(kBucketLimits[i], max);
+      }
+    }
+    return max;
+  }
+
+  /** @return the longest run recorded, in seconds */
+  public synchronized double getMax() {
+    return max;
+  }
+
+  /** Puts the percentiles on the dashboard, then starts counting afresh. */
+  public synchronized void publishAndReset() {
+    if (total == 0) {
+      return; // Keep showing the last runs rather than zeros
+    }
+    SmartDashboard.putNumber(p50Key, getPercentile(0.5) * 1000.0);
+    SmartDashboard.putNumber(p99Key, getPercentile(0.99) * 1000.0);
+    SmartDashboard.putNumber(maxKey, max * 1000.0);
+
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+    }
+    total = 0;
+    max = 0;
+  }
+}
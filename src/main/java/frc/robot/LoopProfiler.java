@@ -0,0 +1,192 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.LoopConstants;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows where the main loop's time goes. Work is timed in named sections, each with its own {@link
+ * LatencyHistogram}: every rate group task, the command scheduler's subsystem, button and command
+ * phases, each scheduled command, and robotPeriodic as a whole.
+ *
+ * <p>The main loop's sections are also added up per loop, and the breakdown of the last few loops
+ * that overran is kept for {@link #printOverruns()}. Sections can nest, like the scheduler's phases
+ * inside the task that runs it, so a breakdown adds up to more than the loop took.
+ *
+ * <p>The scheduler has no hooks around each phase, so it is timed from markers: a button polled
+ * before any others, one polled after them, and the callback run after each command's execute(). A
+ * command's time therefore also includes the isFinished() of the command before it.
+ */
+public final class LoopProfiler {
+  /** Something timed under one name. */
+  public static final class Section {
+    private final String name;
+    private final LatencyHistogram histogram;
+    // Where this section's time goes in the per-loop breakdown, or -1 if there are too many
+    private final int index;
+
+    private Section(String name, int index) {
+      this.name = name;
+      this.index = index;
+      histogram = new LatencyHistogram(name);
+    }
+
+    /** @param seconds how long one run of this section took */
+    public void record(double seconds) {
+      histogram.record(seconds);
+      if (index >= 0 && Thread.currentThread() == mainThread) {
+        frame[index] += seconds;
+      }
+    }
+  }
+
+  private static final Map<String, Section> sections = new HashMap<>();
+  private static final List<Section> sectionList = new ArrayList<>();
+  private static final LatencyHistogram robotPeriodic = new LatencyHistogram("robotPeriodic");
+  private static double lastPublishTime;
+
+  // The main loop's time per section for the current loop, and for the last few that overran
+  private static volatile Thread mainThread;
+  private static final double[] frame = new double[LoopConstants.kMaxProfiledSections];
+  private static double frameStart;
+  private static final double[][] overrunFrames =
+      new double[LoopConstants.kOverrunFramesKept][LoopConstants.kMaxProfiledSections];
+  private static final double[] overrunTimes = new double[LoopConstants.kOverrunFramesKept];
+  private static final double[] overrunDurations = new double[LoopConstants.kOverrunFramesKept];
+  private static int overrunCount;
+
+  private static final Section subsystemsSection = section("Subsystem periodic");
+  private static final Section buttonsSection = section("Button polling");
+  private static final Section schedulerTailSection = section("Scheduler other");
+  private static final Map<String, Section> commandSections = new HashMap<>();
+  private static double schedulerMark;
+
+  private LoopProfiler() {}
+
+  /**
+   * @param name what is being timed
+   * @return the section with that name, created the first time it is asked for
+   */
+  public static synchronized Section section(String name) {
+    Section section = sections.get(name);
+    if (section == null) {
+      int index = sectionList.size();
+      section = new Section(name, index < LoopConstants.kMaxProfiledSections ? index : -1);
+      sections.put(name, section);
+      sectionList.add(section);
+    }
+    return section;
+  }
+
+  /** Marks the start of robotPeriodic. Sections recorded on this thread count toward the loop. */
+  public static void beginLoop() {
+    mainThread = Thread.currentThread();
+    for (int i = 0; i < frame.length; i++) {
+      frame[i] = 0;
+    }
+    frameStart = Timer.getFPGATimestamp();
+  }
+
+  /** Marks the end of robotPeriodic, and keeps the loop's breakdown if it overran. */
+  public static void endLoop() {
+    double duration = Timer.getFPGATimestamp() - frameStart;
+    robotPeriodic.record(duration);
+    if (duration > LoopConstants.kCommandPeriodSeconds) {
+      int slot = overrunCount % overrunFrames.length;
+      System.arraycopy(frame, 0, overrunFrames[slot], 0, frame.length);
+      overrunTimes[slot] = frameStart;
+      overrunDurations[slot] = duration;
+      overrunCount++;
+    }
+  }
+
+  /**
+   * Starts timing the command scheduler's phases. Call before any buttons are bound, then call
+   * {@link #endButtonBindings()} once they all are.
+   */
+  public static void beginButtonBindings() {
+    CommandScheduler.getInstance().addButton(LoopProfiler::buttonsStarted);
+  }
+
+  /** @see #beginButtonBindings() */
+  public static void endButtonBindings() {
+    CommandScheduler.getInstance().addButton(LoopProfiler::buttonsFinished);
+    CommandScheduler.getInstance().onCommandExecute(LoopProfiler::commandExecuted);
+  }
+
+  /** Runs the command scheduler, timing each of its phases. */
+  public static void runScheduler() {
+    schedulerMark = Timer.getFPGATimestamp();
+    CommandScheduler.getInstance().run();
+    schedulerTailSection.record(Timer.getFPGATimestamp() - schedulerMark);
+  }
+
+  private static void buttonsStarted() {
+    double now = Timer.getFPGATimestamp();
+    subsystemsSection.record(now - schedulerMark);
+    schedulerMark = now;
+  }
+
+  private static void buttonsFinished() {
+    double now = Timer.getFPGATimestamp();
+    buttonsSection.record(now - schedulerMark);
+    schedulerMark = now;
+  }
+
+  private static void commandExecuted(Command command) {
+    double now = Timer.getFPGATimestamp();
+    Section section = commandSections.get(command.getName());
+    if (section == null) {
+      section = section("Command " + command.getName());
+      commandSections.put(command.getName(), section);
+    }
+    section.record(now - schedulerMark);
+    schedulerMark = now;
+  }
+
+  /** Puts every section's percentiles on the dashboard, if it has been long enough since last. */
+  public static void publish() {
+    double now = Timer.getFPGATimestamp();
+    if (now - lastPublishTime < LoopConstants.kProfilerPublishSeconds) {
+      return;
+    }
+    lastPublishTime = now;
+
+    robotPeriodic.publishAndReset();
+    synchronized (LoopProfiler.class) {
+      for (int i = 0; i < sectionList.size(); i++) {
+        sectionList.get(i).histogram.publishAndReset();
+      }
+    }
+    SmartDashboard.putNumber("Loop overruns", overrunCount);
+  }
+
+  /** Prints the breakdown of the last few loops that overran. */
+  public static synchronized void printOverruns() {
+    int kept = Math.min(overrunCount, overrunFrames.length);
+    for (int n = kept; n > 0; n--) {
+      int slot = (overrunCount - n) % overrunFrames.length;
+      StringBuilder line =
+          new StringBuilder(
+              String.format(
+                  "[LoopProfiler] Overrun at %.3f s took %.1f ms --",
+                  overrunTimes[slot], overrunDurations[slot] * 1000.0));
+      String separator = " ";
+      for (int i = 0; i < sectionList.size() && i < frame.length; i++) {
+        if (overrunFrames[slot][i] > 0) {
+          line.append(separator)
+              .append(sectionList.get(i).name)
+              .append(String.format(" %.2f ms", overrunFrames[slot][i] * 1000.0));
+          separator = ", ";
+        }
+      }
+      System.out.println(line);
+    }
+  }
+}
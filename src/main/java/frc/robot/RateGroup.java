@@ -0,0 +1,250 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.LoopConstants;
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A set of tasks run together at one rate and timed as a group. Code declares the rate it needs by
+ * adding its task to one of the robot's three groups:
+ *
+ * <ul>
+ *   <li>{@link #kControl} runs on its own thread, for control loops and sensor sampling that need
+ *       to run faster than the main loop
+ *   <li>{@link #kCommands} runs the command scheduler on the main loop
+ *   <li>{@link #kTelemetry} runs dashboard updates on the main loop, but only every few cycles
+ * </ul>
+ *
+ * <p>Each task is timed under its own name by the {@link LoopProfiler}, and each group counts the
+ * heap it allocates per run. Once a mode has settled, see {@link #checkAllocationsAfter(double)},
+ * runs that allocate more than the group's budget are counted as allocation overruns.
+ *
+ * <p>Tasks in the control group run on a different thread from everything else, so anything they
+ * share with the main loop must be thread safe. A task may still run once more after it has been
+ * removed.
+ *
+ * <p>The groups read the time from {@link #getTime()}, which off the robot can be replaced with a
+ * simulated clock so the real tasks run without the HAL.
+ */
+public final class RateGroup {
+  /** Something to run in a group, timed under a name. */
+  public static final class Task {
+    private final LoopProfiler.Section section;
+    private final Runnable runnable;
+
+    /**
+     * @param name what the task is timed as
+     * @param runnable the work to run
+     */
+    public Task(String name, Runnable runnable) {
+      section = LoopProfiler.section(name);
+      this.runnable = runnable;
+    }
+  }
+
+  public static final RateGroup kControl =
+      new RateGroup(
+          "Control",
+          LoopConstants.kControlPeriodSeconds,
+          LoopConstants.kControlAllocationBudgetBytes);
+  public static final RateGroup kCommands =
+      new RateGroup(
+          "Commands",
+          LoopConstants.kCommandPeriodSeconds,
+          LoopConstants.kCommandAllocationBudgetBytes);
+  public static final RateGroup kTelemetry =
+      new RateGroup(
+          "Telemetry",
+          LoopConstants.kTelemetryPeriodSeconds,
+          LoopConstants.kTelemetryAllocationBudgetBytes);
+
+  private static volatile DoubleSupplier clock = Timer::getFPGATimestamp;
+  // Allocations are only checked against the budgets after this time
+  private static volatile double allocationCheckTime = Double.POSITIVE_INFINITY;
+
+  private final String name;
+  private final double period;
+  private final long allocationBudget;
+  // Replaced rather than changed, so running the tasks needs no lock or iterator
+  private volatile Task[] tasks = new Task[0];
+  private Notifier notifier;
+
+  private double lastStartTime, nextRunTime;
+  private volatile double lastDuration, maxDuration, maxJitter;
+  private volatile int overruns;
+  private volatile long lastAllocated, maxAllocated;
+  private volatile int allocationOverruns;
+  private final String durationKey, maxDurationKey, maxJitterKey, overrunsKey;
+  private final String allocatedKey, maxAllocatedKey, allocationOverrunsKey;
+
+  private RateGroup(String name, double period, long allocationBudget) {
+    this.name = name;
+    this.period = period;
+    this.allocationBudget = allocationBudget;
+    durationKey = name + " loop time (ms)";
+    maxDurationKey = name + " loop max time (ms)";
+    maxJitterKey = name + " loop max jitter (ms)";
+    overrunsKey = name + " loop overruns";
+    allocatedKey = name + " loop allocated (bytes)";
+    maxAllocatedKey = name + " loop max allocated (bytes)";
+    allocationOverrunsKey = name + " loop allocation overruns";
+  }
+
+  /**
+   * @param name what the task is timed as
+   * @param runnable runs at this group's rate, after the tasks already added
+   */
+  public void add(String name, Runnable runnable) {
+    add(new Task(name, runnable));
+  }
+
+  /** @param task runs at this group's rate, after the tasks already added */
+  public synchronized void add(Task task) {
+    Task[] added = Arrays.copyOf(tasks, tasks.length + 1);
+    added[tasks.length] = task;
+    tasks = added;
+  }
+
+  /** @param task a task previously added */
+  public synchronized void remove(Task task) {
+    for (int i = 0; i < tasks.length; i++) {
+      if (tasks[i] == task) {
+        Task[] removed = new Task[tasks.length - 1];
+        System.arraycopy(tasks, 0, removed, 0, i);
+        System.arraycopy(tasks, i + 1, removed, i, removed.length - i);
+        tasks = removed;
+        return;
+      }
+    }
+  }
+
+  /** Starts running the group periodically on its own thread. */
+  public synchronized void start() {
+    if (notifier == null) {
+      notifier = new Notifier(this::run);
+      notifier.startPeriodic(period);
+    }
+  }
+
+  /** @return the time the groups run on: the FPGA time, in seconds, unless replaced */
+  public static double getTime() {
+    return clock.getAsDouble();
+  }
+
+  /**
+   * Replaces the FPGA clock, for running the groups' tasks off the robot.
+   *
+   * @param clock returns the time, in seconds
+   */
+  public static void setClock(DoubleSupplier clock) {
+    RateGroup.clock = clock;
+  }
+
+  /** Runs the group if its period has passed since it last ran. For groups run by the main loop. */
+  public void runIfDue() {
+    double now = getTime();
+    // Allow for loop jitter, so the group doesn't slip a whole cycle late
+    if (now >= nextRunTime - LoopConstants.kCommandPeriodSeconds / 2) {
+      nextRunTime = Math.max(nextRunTime + period, now);
+      run();
+    }
+  }
+
+  /** Runs every task in the group once, and records how long they took. */
+  public void run() {
+    long startBytes = AllocationCounter.getAllocatedBytes();
+    double start = getTime();
+    if (lastStartTime != 0) {
+      double jitter = Math.abs(start - lastStartTime - period);
+      if (jitter > maxJitter) {
+        maxJitter = jitter;
+      }
+    }
+    lastStartTime = start;
+
+    Task[] tasks = this.tasks;
+    for (int i = 0; i < tasks.length; i++) {
+      double taskStart = getTime();
+      tasks[i].runnable.run();
+      tasks[i].section.record(getTime() - taskStart);
+    }
+
+    double duration = getTime() - start;
+    lastDuration = duration;
+    if (duration > maxDuration) {
+      maxDuration = duration;
+    }
+    if (duration > period) {
+      overruns++;
+    }
+
+    long allocated = AllocationCounter.getAllocatedSince(startBytes);
+    lastAllocated = allocated;
+    if (start >= allocationCheckTime) {
+      if (allocated > maxAllocated) {
+        maxAllocated = allocated;
+      }
+      if (allocated > allocationBudget) {
+        allocationOverruns++;
+      }
+    }
+  }
+
+  /** @return how many times running the group has taken longer than its period */
+  public int getOverruns() {
+    return overruns;
+  }
+
+  /** @return how many settled runs of the group have allocated more than its budget */
+  public int getAllocationOverruns() {
+    return allocationOverruns;
+  }
+
+  /**
+   * Starts checking every group's allocations against its budget after a delay, so the one-off
+   * allocations of entering a mode are left out. Call when autonomous or teleop starts.
+   *
+   * @param delay how long to wait first, in seconds
+   */
+  public static void checkAllocationsAfter(double delay) {
+    allocationCheckTime = getTime() + delay;
+  }
+
+  /** Stops checking allocations, and prints any group that went over its budget. */
+  public static void stopCheckingAllocations() {
+    allocationCheckTime = Double.POSITIVE_INFINITY;
+    kControl.printAllocationOverruns();
+    kCommands.printAllocationOverruns();
+    kTelemetry.printAllocationOverruns();
+  }
+
+  private void printAllocationOverruns() {
+    if (allocationOverruns > 0) {
+      System.out.println(
+          String.format(
+              "[RateGroup] %s loop went over its %d byte allocation budget in %d runs, allocating"
+                  + " up to %d bytes",
+              name, allocationBudget, allocationOverruns, maxAllocated));
+    }
+  }
+
+  /** Puts every group's timing and allocations on the dashboard. */
+  public static void publishAll() {
+    kControl.publish();
+    kCommands.publish();
+    kTelemetry.publish();
+  }
+
+  private void publish() {
+    SmartDashboard.putNumber(durationKey, lastDuration * 1000.0);
+    SmartDashboard.putNumber(maxDurationKey, maxDuration * 1000.0);
+    SmartDashboard.putNumber(maxJitterKey, maxJitter * 1000.0);
+    SmartDashboard.putNumber(overrunsKey, overruns);
+    SmartDashboard.putNumber(allocatedKey, lastAllocated);
+    SmartDashboard.putNumber(maxAllocatedKey, maxAllocated);
+    SmartDashboard.putNumber(allocationOverrunsKey, allocationOverruns);
+  }
+}
@@ -13,6 +13,9 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpiutil.net.PortForwarder;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.subsystems.CachedSparkMax;
+import frc.robot.subsystems.StatusFrameProfile.Phase;
 import java.util.Map;
 
 /**
@@ -22,10 +25,22 @@ import java.util.Map;
  * project.
  */
 public class Robot extends TimedRobot {
+  // Wheel of Misfortune colors, by the letter the FMS sends as game data
+  private static final Map<String, String> kColorNames =
+      Map.ofEntries(
+          Map.entry("R", "Red"),
+          Map.entry("G", "Green"),
+          Map.entry("B", "Blue"),
+          Map.entry("Y", "Yellow"));
+
   private Command m_autonomousCommand;
 
   public static RobotContainer m_robotContainer;
 
+  public Robot() {
+    super(LoopConstants.kCommandPeriodSeconds);
+  }
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
@@ -34,7 +49,17 @@ public class Robot extends TimedRobot {
   public void robotInit() {
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
+    LoopProfiler.beginButtonBindings();
     m_robotContainer = new RobotContainer();
+    LoopProfiler.endButtonBindings();
+
+    // Subsystems add their periodic work and dashboard updates to the rate groups as they are
+    // created; the command scheduler runs in the main loop after them
+    RateGroup.kCommands.add("Scheduler", LoopProfiler::runScheduler);
+    RateGroup.kTelemetry.add("CAN counts", CachedSparkMax::publishCounts);
+    RateGroup.kTelemetry.add("Rate groups", RateGroup::publishAll);
+    RateGroup.kTelemetry.add("Loop profiler", LoopProfiler::publish);
+    RateGroup.kControl.start();
 
     // Set up port forwarding so we can access the limelight over USB :)
     // visit '172.22.11.2:5800' in your browser (ie, Chrome) on the laptop
@@ -56,27 +81,48 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
-    // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
-    // commands, running already-scheduled commands, removing finished or interrupted commands,
-    // and running subsystem periodic() methods.  This must be called from the robot's periodic
-    // block in order for anything in the Command-based framework to work.
-    CommandScheduler.getInstance().run();
+    LoopProfiler.beginLoop();
+
+    // Runs the Scheduler, timed as the commands rate group.  This is responsible for polling
+    // buttons, adding newly-scheduled commands, running already-scheduled commands, removing
+    // finished or interrupted commands, and running subsystem periodic() methods.  This must be
+    // called from the robot's periodic block in order for anything in the Command-based framework
+    // to work.
+    RateGroup.kCommands.run();
+
+    RateGroup.kTelemetry.runIfDue();
+
+    LoopProfiler.endLoop();
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
   public void disabledInit() {
+    CachedSparkMax.setPhase(Phase.DISABLED);
+    LoopProfiler.printOverruns();
+    RateGroup.stopCheckingAllocations();
     m_robotContainer.m_climber.setTelescopeSpeed(0);
+    m_robotContainer.m_shooter.setStandbyEnabled(false);
+    if (m_robotContainer.m_shooter.getShotsFired() > 0) {
+      m_robotContainer.m_shooter.saveShotTrace();
+    }
   }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    // Build the selected auto in the background, rebuilding if the selection changes
+    m_robotContainer.autoSelector.update();
+  }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    CachedSparkMax.setPhase(Phase.AUTONOMOUS);
+    RateGroup.checkAllocationsAfter(LoopConstants.kAllocationSettleSeconds);
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
     m_robotContainer.m_shooter.resetShotsFired();
+    // Hold the flywheel at standby once the routine is done with it
+    m_robotContainer.m_shooter.setStandbyEnabled(true);
 
     // schedule the autonomous command (example)
     if (m_autonomousCommand != null) {
@@ -95,6 +141,8 @@ public class Robot extends TimedRobot {
 
   @Override
   public void teleopInit() {
+    CachedSparkMax.setPhase(Phase.TELEOP);
+    RateGroup.checkAllocationsAfter(LoopConstants.kAllocationSettleSeconds);
     // This makes sure that the autonomous stops running when
     // teleop starts running. If you want the autonomous to
     // continue until interrupted by another command, remove
@@ -107,6 +155,7 @@ public class Robot extends TimedRobot {
 
     m_robotContainer.m_climber.resetTelescopeEncoder();
     m_robotContainer.m_climber.setTelescopeSpeed(0);
+    m_robotContainer.m_shooter.setStandbyEnabled(true);
   }
 
   /** This function is called periodically during operator control. */
@@ -122,14 +171,7 @@ public class Robot extends TimedRobot {
       String dashboardString = "";
 
       if (gameData.length() > 0) {
-        Map<String, String> dataToFullColorName =
-            Map.ofEntries(
-                Map.entry("R", "Red"),
-                Map.entry("G", "Green"),
-                Map.entry("B", "Blue"),
-                Map.entry("Y", "Yellow"));
-        dashboardString =
-            dataToFullColorName.getOrDefault(gameData, "CORRUPT DATA -- CALL AN FTA / CSA");
+        dashboardString = kColorNames.getOrDefault(gameData, "CORRUPT DATA -- CALL AN FTA / CSA");
       }
 
       SmartDashboard.putString("Wheel of Misfortune color", dashboardString);
@@ -138,6 +180,7 @@ public class Robot extends TimedRobot {
 
   @Override
   public void testInit() {
+    CachedSparkMax.setPhase(Phase.TELEOP);
     // Cancels all running commands at the start of test mode.
     CommandScheduler.getInstance().cancelAll();
   }
@@ -31,7 +31,9 @@ import frc.robot.commands.IntakeSetState;
 import frc.robot.commands.ShooterSetAcceleratorSpeed;
 import frc.robot.commands.ShooterSetHoodState;
 import frc.robot.commands.ShooterSetSpeed;
+import frc.robot.commands.ShooterTrackTarget;
 import frc.robot.commands.auto.AutoLineAuto;
+import frc.robot.commands.auto.AutoSelector;
 import frc.robot.commands.auto.SneakyPete;
 import frc.robot.commands.auto.WallShotAuto;
 import frc.robot.subsystems.Climber;
@@ -40,8 +42,10 @@ import frc.robot.subsystems.Hopper;
 import frc.robot.subsystems.Intake;
 import frc.robot.subsystems.Intake.IntakeState;
 import frc.robot.subsystems.Limelight;
+import frc.robot.subsystems.PoseEstimator;
 import frc.robot.subsystems.Shooter;
 import frc.robot.subsystems.Shooter.HoodState;
+import frc.robot.subsystems.ShotMap;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -57,14 +61,16 @@ public class RobotContainer {
   private final Intake m_intake = new Intake();
   public final Climber m_climber = new Climber();
   private final Limelight m_limelight = new Limelight();
+  private final PoseEstimator m_poseEstimator = new PoseEstimator(m_robotDrive, m_limelight);
+  private final ShotMap m_shotMap = ShotMap.load();
 
   // Controllers
   public final XboxController driverController = new XboxController(0);
   public final XboxController operatorController = new XboxController(1);
 
-  // Generate this in robot container constructor so that the command is created on robot init
-  // not on auto start (it can take up to 0.5s to generate the paths)
-  public final Command autoCommand;
+  // Only the selected routine is built, in the background while disabled, so that no paths are
+  // generated on auto start
+  public final AutoSelector autoSelector = new AutoSelector();
 
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
@@ -89,19 +95,39 @@ public class RobotContainer {
             },
             m_robotDrive));
 
-    // Generate paths at robot init
-    autoCommand =
-        new SequentialCommandGroup(
-            new InstantCommand(
-                () -> {
-                  m_robotDrive.zeroHeading();
-                  m_robotDrive.resetEncoders();
-                  m_robotDrive.resetOdometry(new Pose2d(0, 0, new Rotation2d(0)));
-                }),
-            // new SneakyPete(m_robotDrive, m_intake, m_shooter, m_hopper, m_limelight)
-            // new WallShotAuto(m_robotDrive, m_intake, m_shooter, m_hopper, m_limelight, 0)
-            new AutoLineAuto(m_robotDrive, m_intake, m_shooter, ShooterConstants.kAcceleratorRPMAutoLine, m_hopper, m_limelight, 0)
-            );
+    autoSelector.setDefaultOption(
+        "Auto line",
+        AutoLineAuto.paths,
+        () ->
+            withOdometryReset(
+                new AutoLineAuto(
+                    m_robotDrive,
+                    m_intake,
+                    m_shooter,
+                    ShooterConstants.kAcceleratorRPMAutoLine,
+                    m_hopper,
+                    m_limelight,
+                    0)));
+    autoSelector.addOption(
+        "Wall shot",
+        WallShotAuto.paths,
+        () ->
+            withOdometryReset(
+                new WallShotAuto(m_robotDrive, m_intake, m_shooter, m_hopper, m_limelight, 0)));
+    autoSelector.addOption(
+        "Sneaky Pete",
+        SneakyPete.paths,
+        () ->
+            withOdometryReset(
+                new SneakyPete(m_robotDrive, m_intake, m_shooter, m_hopper, m_limelight)));
+  }
+
+  /** Zeroes the gyro, encoders and odometry before running an autonomous routine. */
+  private Command withOdometryReset(Command routine) {
+    return new SequentialCommandGroup(
+        new InstantCommand(
+            () -> m_robotDrive.resetHeadingAndOdometry(new Pose2d(0, 0, new Rotation2d(0)))),
+        routine);
   }
 
   /**
@@ -171,6 +197,10 @@ public class RobotContainer {
             new ShooterSetAcceleratorSpeed(m_shooter, ShooterConstants.kAcceleratorRPMAutoLine))
         .whenPressed(new ShooterSetHoodState(m_shooter, HoodState.AUTOLINE_SHOT));
 
+    // Distance-based shot (shooter, accelerator, & hood follow the target until turned off)
+    new JoystickButton(operatorController, XboxController.Button.kStickRight.value)
+        .toggleWhenPressed(new ShooterTrackTarget(m_shooter, m_limelight, m_shotMap));
+
     // Turn shooter + accelerator off
     new JoystickButton(operatorController, XboxController.Button.kY.value)
         .whenPressed(new ShooterSetSpeed(m_shooter, 0.0))
@@ -234,6 +264,6 @@ public class RobotContainer {
    * @return the command to run in autonomous
    */
   public Command getAutonomousCommand() {
-    return autoCommand;
+    return autoSelector.getCommand();
   }
 }
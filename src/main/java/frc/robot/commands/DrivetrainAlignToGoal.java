@@ -7,15 +7,21 @@
 
 package frc.robot.commands;
 
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.controller.PIDController;
+import edu.wpi.first.wpilibj.controller.ProfiledPIDController;
 import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.trajectory.TrapezoidProfile;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.LimelightConstants;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.RateGroup;
 import frc.robot.subsystems.Drivetrain;
 import frc.robot.subsystems.Limelight;
 import frc.robot.subsystems.Limelight.CamMode;
+import frc.robot.subsystems.LimelightFrame;
 
 public class DrivetrainAlignToGoal extends CommandBase {
   /** Creates a new DrivetrainAlignToGoal. */
@@ -26,7 +32,28 @@ public class DrivetrainAlignToGoal extends CommandBase {
   PIDController pidController;
   SimpleMotorFeedforward feedForward;
 
+  long lastFrame;
+  double pidOutput;
+
+  // Gyro setpoint mode: each new frame sets an absolute heading target, which the control loop
+  // tracks using the gyro
+  final boolean useGyroSetpoint;
+  ProfiledPIDController headingController;
+  final RateGroup.Task headingTask = new RateGroup.Task("Alignment heading", this::updateHeading);
+  final double[] poseAtCapture = new double[4];
+  volatile double targetHeading;
+  // The goal last given to the heading controller, which allocates whenever it is set
+  double goalHeading;
+  volatile boolean hasTargetHeading, headingSettled;
+  double startTime;
+  boolean running;
+
   public DrivetrainAlignToGoal(Drivetrain drivetrain, Limelight limelight) {
+    this(drivetrain, limelight, LimelightConstants.kUseGyroAlignment);
+  }
+
+  public DrivetrainAlignToGoal(
+      Drivetrain drivetrain, Limelight limelight, boolean useGyroSetpoint) {
     // Use addRequirements() here to declare subsystem dependencies.
     if (drivetrain != null) {
       addRequirements(drivetrain);
@@ -44,6 +71,20 @@ public class DrivetrainAlignToGoal extends CommandBase {
             DriveConstants.ksVolts,
             DriveConstants.kvVoltSecondsPerMeter,
             DriveConstants.kaVoltSecondsSquaredPerMeter);
+
+    this.useGyroSetpoint = useGyroSetpoint;
+    if (useGyroSetpoint) {
+      headingController =
+          new ProfiledPIDController(
+              LimelightConstants.kGyroAlignmentkP,
+              0,
+              0,
+              new TrapezoidProfile.Constraints(
+                  LimelightConstants.kMaxAlignmentTurnRate,
+                  LimelightConstants.kMaxAlignmentTurnAcceleration),
+              LoopConstants.kControlPeriodSeconds);
+      headingController.enableContinuousInput(-180, 180);
+    }
   }
 
   // Called when the command is initially scheduled.
@@ -54,16 +95,41 @@ public class DrivetrainAlignToGoal extends CommandBase {
     pidController.setTolerance(LimelightConstants.kAlignmentAcceptableError);
     limelight.setCamMode(CamMode.VISION_CAM);
     limelight.setPipeline(LimelightConstants.kShotPipeline);
+    lastFrame = limelight.getLatestFrame().sequence;
+    pidOutput = 0;
+    startTime = Timer.getFPGATimestamp();
+
+    if (useGyroSetpoint) {
+      hasTargetHeading = false;
+      headingSettled = false;
+      goalHeading = Double.NaN;
+      headingController.reset(m_drivetrain.getHeading(), -m_drivetrain.getTurnRate());
+      synchronized (this) {
+        running = true;
+      }
+      RateGroup.kControl.add(headingTask);
+    }
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    double pidOutput = pidController.calculate(limelight.getHorizontalOffset());
-    double outputLeft =
-        -pidOutput - feedForward.calculate(m_drivetrain.getLeftEncoder().getVelocity());
-    double outputRight =
-        pidOutput + feedForward.calculate(m_drivetrain.getRightEncoder().getVelocity());
+    if (useGyroSetpoint) {
+      updateTargetHeading();
+      return;
+    }
+
+    // Only update the turn when a new frame arrives, and stop turning if frames stop arriving
+    LimelightFrame frame = limelight.getLatestFrame();
+    if (!frame.hasTarget
+        || frame.getAge(Timer.getFPGATimestamp()) > LimelightConstants.kFrameStaleSeconds) {
+      pidOutput = 0;
+    } else if (frame.sequence != lastFrame) {
+      pidOutput = pidController.calculate(frame.horizontalOffset);
+    }
+    lastFrame = frame.sequence;
+    double outputLeft = -pidOutput - feedForward.calculate(m_drivetrain.getLeftVelocity());
+    double outputRight = pidOutput + feedForward.calculate(m_drivetrain.getRightVelocity());
 
     SmartDashboard.putNumber("Alignment error", pidController.getPositionError());
     m_drivetrain.tankDriveVolts(outputLeft, outputRight);
@@ -71,9 +137,73 @@ public class DrivetrainAlignToGoal extends CommandBase {
     SmartDashboard.putBoolean("Alignment DONE", false);
   }
 
+  /** Turns each new frame into a heading target, using the heading when the frame was captured. */
+  private void updateTargetHeading() {
+    LimelightFrame frame = limelight.getLatestFrame();
+    if (frame.hasTarget
+        && frame.sequence != lastFrame
+        && frame.getAge(Timer.getFPGATimestamp()) <= LimelightConstants.kFrameStaleSeconds) {
+      // Fall back to the current heading if the frame is older than the pose history
+      double headingAtCapture =
+          m_drivetrain.getPoseAt(frame.getCaptureTimestamp(), poseAtCapture)
+              ? Math.toDegrees(poseAtCapture[3])
+              : m_drivetrain.getHeading();
+      targetHeading =
+          Math.IEEEremainder(
+              headingAtCapture
+                  - (frame.horizontalOffset - LimelightConstants.kTargetLimelightOffset),
+              360);
+      hasTargetHeading = true;
+    }
+    lastFrame = frame.sequence;
+
+    SmartDashboard.putNumber(
+        "Alignment error", Math.IEEEremainder(targetHeading - m_drivetrain.getHeading(), 360));
+    SmartDashboard.putBoolean("Alignment DONE", false);
+  }
+
+  /** Tracks the heading target with a motion profile. Runs on the control loop's thread. */
+  private synchronized void updateHeading() {
+    if (!running) {
+      return;
+    }
+    if (!hasTargetHeading) {
+      m_drivetrain.tankDriveVolts(0, 0);
+      return;
+    }
+
+    double heading = m_drivetrain.getHeading();
+    // The gyro's rate is clockwise-positive, the heading counter-clockwise-positive
+    double turnRate = -m_drivetrain.getTurnRate();
+
+    double target = targetHeading;
+    if (target != goalHeading) {
+      goalHeading = target;
+      headingController.setGoal(target);
+    }
+    double output = headingController.calculate(heading);
+    TrapezoidProfile.State setpoint = headingController.getSetpoint();
+    output +=
+        LimelightConstants.kGyroAlignmentkD * (setpoint.velocity - turnRate)
+            + feedForward.calculate(
+                Math.toRadians(setpoint.velocity) * DriveConstants.kTrackwidthMeters / 2.0);
+    m_drivetrain.tankDriveVolts(-output, output);
+
+    headingSettled =
+        Math.abs(Math.IEEEremainder(target - heading, 360))
+                <= LimelightConstants.kAlignmentAcceptableError
+            && Math.abs(turnRate) <= LimelightConstants.kAlignmentRateTolerance;
+  }
+
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
+    if (useGyroSetpoint) {
+      synchronized (this) {
+        running = false;
+      }
+      RateGroup.kControl.remove(headingTask);
+    }
     m_drivetrain.tankDriveVolts(0, 0);
     // limelight.setCamMode(CamMode.DRIVER_CAM);
     SmartDashboard.putBoolean("Alignment DONE", true);
@@ -85,6 +215,12 @@ public class DrivetrainAlignToGoal extends CommandBase {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
+    if (useGyroSetpoint) {
+      // Without a target there is nothing to align to, so carry on as the vision mode would
+      return hasTargetHeading
+          ? headingSettled
+          : Timer.getFPGATimestamp() - startTime >= LimelightConstants.kAlignmentNoTargetSeconds;
+    }
     return pidController.atSetpoint();
   }
 }
@@ -0,0 +1,121 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.HopperConstants;
+import frc.robot.Constants.ShooterConstants;
+import frc.robot.RateGroup;
+import frc.robot.subsystems.Hopper;
+import frc.robot.subsystems.Shooter;
+
+/**
+ * Feeds the shooter one ball at a time, as fast as the flywheel can recover. The flywheel speed is
+ * watched on a fast notifier: when a shot pulls it down, the hopper stops until the flywheel is
+ * back within {@link ShooterConstants#kAcceptableRPMRange} of its setpoint, so no ball is fired
+ * during a dip. Dips are only counted as shots once the flywheel has reached its setpoint, so
+ * spinning up to a new speed isn't mistaken for one. Runs until interrupted.
+ */
+public class HopperMeteredFeed extends CommandBase {
+  private final Hopper m_hopper;
+  private final Shooter m_shooter;
+  private final double leftSpeed, rightSpeed;
+  private final RateGroup.Task meterTask = new RateGroup.Task("Metered feed", this::meter);
+
+  private boolean running;
+  // Shots are only counted once the flywheel has reached the current setpoint
+  private boolean armed;
+  private double armedSetpoint;
+  private boolean recovering;
+  private double shotTime;
+  private int shots;
+  private double totalRecoveryTime;
+
+  public HopperMeteredFeed(Hopper hopper, Shooter shooter, double leftSpeed, double rightSpeed) {
+    addRequirements(hopper);
+    m_hopper = hopper;
+    m_shooter = shooter;
+    this.leftSpeed = leftSpeed;
+    this.rightSpeed = rightSpeed;
+  }
+
+  @Override
+  public void initialize() {
+    synchronized (this) {
+      running = true;
+      armed = false;
+      recovering = false;
+      shots = 0;
+      totalRecoveryTime = 0;
+    }
+    RateGroup.kControl.add(meterTask);
+  }
+
+  /** Starts and stops the hopper around each shot. Runs on the control loop's thread. */
+  private synchronized void meter() {
+    if (!running) {
+      return;
+    }
+
+    double setpoint = m_shooter.getFlywheelSetpoint();
+    double velocity = m_shooter.getFlywheelVelocity();
+    double now = Timer.getFPGATimestamp();
+
+    if (setpoint != armedSetpoint) {
+      // Spinning up or down to a new speed isn't a shot
+      armed = false;
+      recovering = false;
+      armedSetpoint = setpoint;
+    }
+    if (!armed) {
+      armed = Math.abs(setpoint - velocity) <= ShooterConstants.kAcceptableRPMRange;
+    } else if (!recovering && velocity < setpoint - ShooterConstants.kShotDetectionRPMDrop) {
+      // A ball just went through, so hold the next one back until the flywheel recovers
+      recovering = true;
+      shotTime = now;
+    } else if (recovering
+        && Math.abs(setpoint - velocity) <= ShooterConstants.kAcceptableRPMRange) {
+      recovering = false;
+      double recoveryTime = now - shotTime;
+      shots++;
+      totalRecoveryTime += recoveryTime;
+      SmartDashboard.putNumber("Shot recovery time (s)", recoveryTime);
+      SmartDashboard.putNumber("Average shot recovery time (s)", totalRecoveryTime / shots);
+      SmartDashboard.putNumber("Metered shots", shots);
+    }
+
+    boolean ready =
+        !recovering
+            && setpoint > 0
+            && m_shooter.isAcceleratorRunning()
+            && m_shooter.isVelocityWithinTargetRange(
+                setpoint, ShooterConstants.kShotDetectionRPMDrop);
+    if (ready) {
+      m_hopper.setHopper(leftSpeed, rightSpeed);
+    } else {
+      m_hopper.setHopper(
+          HopperConstants.kMeteredFeedRecoverySpeed, HopperConstants.kMeteredFeedRecoverySpeed);
+    }
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    synchronized (this) {
+      running = false;
+    }
+    RateGroup.kControl.remove(meterTask);
+    m_hopper.setHopper(0, 0);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return false;
+  }
+}
@@ -0,0 +1,74 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.LimelightConstants;
+import frc.robot.subsystems.Limelight;
+import frc.robot.subsystems.LimelightFrame;
+import frc.robot.subsystems.Shooter;
+import frc.robot.subsystems.ShotMap;
+
+/**
+ * Continuously sets the flywheel, accelerator and hood for the current distance to the target, so
+ * the robot can shoot from anywhere the target is visible. Holds the last setpoints while the
+ * target is out of view. Runs until interrupted.
+ */
+public class ShooterTrackTarget extends CommandBase {
+  private final Shooter m_shooter;
+  private final Limelight m_limelight;
+  private final ShotMap shotMap;
+  private final ShotMap.Shot shot = new ShotMap.Shot();
+
+  private long lastFrame;
+
+  public ShooterTrackTarget(Shooter shooter, Limelight limelight, ShotMap shotMap) {
+    m_shooter = shooter;
+    m_limelight = limelight;
+    this.shotMap = shotMap;
+    addRequirements(shooter);
+  }
+
+  @Override
+  public void initialize() {
+    lastFrame = -1;
+  }
+
+  @Override
+  public void execute() {
+    LimelightFrame frame = m_limelight.getLatestFrame();
+    if (!frame.hasTarget
+        || frame.sequence == lastFrame
+        || frame.getAge(Timer.getFPGATimestamp()) > LimelightConstants.kFrameStaleSeconds) {
+      return;
+    }
+    lastFrame = frame.sequence;
+
+    double distance = frame.getDistanceToTarget();
+    shotMap.lookup(distance, shot);
+
+    SmartDashboard.putNumber("Target distance (m)", distance);
+    SmartDashboard.putNumber("Shooter setpoint (RPM)", shot.flywheelRPM);
+    SmartDashboard.putNumber("Shooter accelerator RPM", shot.acceleratorRPM);
+    m_shooter.setFlywheelToRPM(shot.flywheelRPM);
+    m_shooter.setAcceleratorToRPM(shot.acceleratorRPM);
+    if (m_shooter.getHoodState() != shot.hoodState) {
+      m_shooter.setHoodState(shot.hoodState);
+    }
+  }
+
+  @Override
+  public void end(boolean interrupted) {}
+
+  @Override
+  public boolean isFinished() {
+    return false;
+  }
+}
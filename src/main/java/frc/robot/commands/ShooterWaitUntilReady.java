@@ -0,0 +1,112 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.ShooterConstants;
+import frc.robot.subsystems.Shooter;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waits until everything needed for an accurate shot is ready, and no longer: the flywheel and
+ * accelerator have held their setpoints for {@link ShooterConstants#kReadySamples} loops in a row,
+ * the hood has had time to settle since it last moved, and the robot is aligned. How long each of
+ * these took is put on the dashboard, to show where shot prep time goes.
+ */
+public class ShooterWaitUntilReady extends CommandBase {
+  private final Shooter m_shooter;
+  private final BooleanSupplier aligned;
+
+  private double startTime;
+  private int flywheelSamples, acceleratorSamples;
+  private double flywheelReadyTime, acceleratorReadyTime, hoodReadyTime, alignedTime;
+
+  /**
+   * @param shooter the shooter to wait for
+   * @param aligned whether the robot is aimed at the target
+   */
+  public ShooterWaitUntilReady(Shooter shooter, BooleanSupplier aligned) {
+    m_shooter = shooter;
+    this.aligned = aligned;
+  }
+
+  @Override
+  public void initialize() {
+    startTime = Timer.getFPGATimestamp();
+    flywheelSamples = 0;
+    acceleratorSamples = 0;
+    flywheelReadyTime = Double.NaN;
+    acceleratorReadyTime = Double.NaN;
+    hoodReadyTime = Double.NaN;
+    alignedTime = Double.NaN;
+  }
+
+  @Override
+  public void execute() {
+    double now = Timer.getFPGATimestamp();
+
+    boolean flywheelAtSpeed =
+        m_shooter.getFlywheelSetpoint() > 0
+            && m_shooter.isVelocityWithinTargetRange(
+                m_shooter.getFlywheelSetpoint(), ShooterConstants.kAcceptableRPMRange);
+    flywheelSamples = flywheelAtSpeed ? flywheelSamples + 1 : 0;
+    flywheelReadyTime =
+        update(flywheelReadyTime, flywheelSamples >= ShooterConstants.kReadySamples);
+
+    boolean acceleratorAtSpeed =
+        Math.abs(m_shooter.getAcceleratorVelocity() - m_shooter.getAcceleratorSetpoint())
+            <= ShooterConstants.kAcceleratorAcceptableRPMRange;
+    acceleratorSamples = acceleratorAtSpeed ? acceleratorSamples + 1 : 0;
+    acceleratorReadyTime =
+        update(acceleratorReadyTime, acceleratorSamples >= ShooterConstants.kReadySamples);
+
+    hoodReadyTime =
+        update(
+            hoodReadyTime,
+            now - m_shooter.getLastHoodChangeTime() >= ShooterConstants.kHoodSettleSeconds);
+    alignedTime = update(alignedTime, aligned.getAsBoolean());
+  }
+
+  /** @return when the gate became ready relative to the start, or NaN if it isn't ready */
+  private double update(double readyTime, boolean ready) {
+    if (!ready) {
+      return Double.NaN;
+    }
+    return Double.isNaN(readyTime) ? Timer.getFPGATimestamp() - startTime : readyTime;
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    SmartDashboard.putNumber("Ready time flywheel (s)", flywheelReadyTime);
+    SmartDashboard.putNumber("Ready time accelerator (s)", acceleratorReadyTime);
+    SmartDashboard.putNumber("Ready time hood (s)", hoodReadyTime);
+    SmartDashboard.putNumber("Ready time alignment (s)", alignedTime);
+    SmartDashboard.putNumber("Ready time total (s)", Timer.getFPGATimestamp() - startTime);
+    if (interrupted) {
+      System.out.println(
+          "[ShooterWaitUntilReady] Gave up waiting -- flywheel "
+              + !Double.isNaN(flywheelReadyTime)
+              + ", accelerator "
+              + !Double.isNaN(acceleratorReadyTime)
+              + ", hood "
+              + !Double.isNaN(hoodReadyTime)
+              + ", aligned "
+              + !Double.isNaN(alignedTime));
+    }
+  }
+
+  @Override
+  public boolean isFinished() {
+    return !Double.isNaN(flywheelReadyTime)
+        && !Double.isNaN(acceleratorReadyTime)
+        && !Double.isNaN(hoodReadyTime)
+        && !Double.isNaN(alignedTime);
+  }
+}
@@ -1,18 +1,25 @@
 package frc.robot.commands.auto;
 
-import edu.wpi.first.wpilibj.controller.PIDController;
-import edu.wpi.first.wpilibj.controller.RamseteController;
-import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.trajectory.Trajectory;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
-import edu.wpi.first.wpilibj2.command.RamseteCommand;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
 import frc.robot.Constants.AutoConstants;
-import frc.robot.Constants.DriveConstants;
 import frc.robot.subsystems.Drivetrain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class AutoHelper {
 
@@ -26,26 +33,149 @@ public class AutoHelper {
             dt));
   }
 
+  /**
+   * Drives a trajectory that may still be generating, starting each marker's command partway
+   * through. The future is resolved when the command starts, not when it is constructed.
+   */
+  public static Command driveTrajectoryAndStop(
+      CompletableFuture<Trajectory> trajectory, Drivetrain dt, PathMarker... markers) {
+    return new DeferredCommand(
+        () -> {
+          Trajectory resolved = trajectory.join();
+          return new SequentialCommandGroup(
+              new InstantCommand(
+                  () -> {
+                    dt.resetOdometry(resolved.getInitialPose());
+                  }),
+              followWithMarkers(resolved, new double[] {0}, dt, markers));
+        },
+        getRequirements(dt, markers));
+  }
+
+  /** Blocks until every path's trajectory is ready, so none are generated mid-routine. */
+  public static Command awaitTrajectories(List<Path> paths) {
+    return new InstantCommand(
+        () -> {
+          for (Path path : paths) {
+            path.toTrajectoryAsync().join();
+          }
+        });
+  }
+
+  /**
+   * Drives every segment of a chain as one continuous trajectory, without resetting odometry, then
+   * stops. Markers scoped with {@link PathMarker#inSegment(int)} are timed from their segment.
+   */
+  public static Command driveChainAndStop(PathChain chain, Drivetrain dt, PathMarker... markers) {
+    return new DeferredCommand(
+        () ->
+            followWithMarkers(
+                chain.toTrajectoryAsync().join(), chain.getSegmentStartTimes(), dt, markers),
+        getRequirements(dt, markers));
+  }
+
+  /**
+   * Follows a trajectory and then stops, while other branches start each marker's command once its
+   * time comes up. Markers get a branch each, so a slow one can't hold up the rest, except that
+   * markers needing the same subsystem share a branch in time order. There each one is cut short
+   * when the next one's time comes, as the scheduler would do. The drive is the deadline, so any
+   * marker command still running when it stops is interrupted.
+   */
+  private static Command followWithMarkers(
+      Trajectory trajectory, double[] segmentStartTimes, Drivetrain dt, PathMarker... markers) {
+    double totalTime = trajectory.getTotalTimeSeconds();
+    double[] times = new double[markers.length];
+    Integer[] order = new Integer[markers.length];
+    for (int i = 0; i < markers.length; i++) {
+      int segment = markers[i].getSegment();
+      double startTime = segment < 0 ? 0 : segmentStartTimes[segment];
+      double endTime =
+          segment < 0 || segment + 1 >= segmentStartTimes.length
+              ? totalTime
+              : segmentStartTimes[segment + 1];
+      times[i] = markers[i].getTime(trajectory, startTime, endTime);
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> times[i]));
+
+    // Group the markers into branches that share no subsystems
+    List<Set<Subsystem>> branchRequirements = new ArrayList<>();
+    List<List<Integer>> branchMarkers = new ArrayList<>();
+    for (int i : order) {
+      Set<Subsystem> requirements = new HashSet<>(markers[i].getCommand().getRequirements());
+      List<Integer> branch = new ArrayList<>();
+      for (int b = branchRequirements.size() - 1; b >= 0; b--) {
+        if (!Collections.disjoint(branchRequirements.get(b), requirements)) {
+          requirements.addAll(branchRequirements.remove(b));
+          branch.addAll(branchMarkers.remove(b));
+        }
+      }
+      branch.add(i);
+      branch.sort(Comparator.comparingDouble(m -> times[m]));
+      branchRequirements.add(requirements);
+      branchMarkers.add(branch);
+    }
+
+    Timer timer = new Timer();
+    Command[] branches = new Command[branchMarkers.size()];
+    for (int b = 0; b < branches.length; b++) {
+      List<Integer> branch = branchMarkers.get(b);
+      SequentialCommandGroup markerCommands = new SequentialCommandGroup();
+      for (int j = 0; j < branch.size(); j++) {
+        double time = times[branch.get(j)];
+        Command command = markers[branch.get(j)].getCommand();
+        if (j + 1 < branch.size()) {
+          double nextTime = times[branch.get(j + 1)];
+          command = command.withInterrupt(() -> timer.get() >= nextTime);
+        }
+        markerCommands.addCommands(new WaitUntilCommand(() -> timer.get() >= time), command);
+      }
+      branches[b] = markerCommands;
+    }
+
+    ParallelDeadlineGroup group =
+        new ParallelDeadlineGroup(
+            new SequentialCommandGroup(
+                followTrajectory(trajectory, dt),
+                new InstantCommand(
+                    () -> {
+                      dt.tankDriveVolts(0, 0);
+                    },
+                    dt)));
+    group.addCommands(branches);
+
+    // Start the clock before the group, since it doesn't run its commands in any set order
+    return new SequentialCommandGroup(
+        new InstantCommand(
+            () -> {
+              timer.reset();
+              timer.start();
+            }),
+        group);
+  }
+
+  private static Subsystem[] getRequirements(Drivetrain dt, PathMarker... markers) {
+    Set<Subsystem> requirements = new HashSet<>();
+    requirements.add(dt);
+    for (PathMarker marker : markers) {
+      requirements.addAll(marker.getCommand().getRequirements());
+    }
+    return requirements.toArray(new Subsystem[0]);
+  }
+
   public static Command driveTrajectory(Trajectory trajectory, Drivetrain dt) {
     return new SequentialCommandGroup(
         new InstantCommand(
             () -> {
               dt.resetOdometry(trajectory.getInitialPose());
             }),
-        new RamseteCommand(
-            trajectory,
-            dt::getPose,
-            new RamseteController(AutoConstants.kRamseteB, AutoConstants.kRamseteZeta),
-            new SimpleMotorFeedforward(
-                DriveConstants.ksVolts,
-                DriveConstants.kvVoltSecondsPerMeter,
-                DriveConstants.kaVoltSecondsSquaredPerMeter),
-            DriveConstants.kDriveKinematics,
-            dt::getWheelSpeeds,
-            new PIDController(DriveConstants.kPDriveVel, 0, 0),
-            new PIDController(DriveConstants.kPDriveVel, 0, 0),
-            dt::tankDriveVolts,
-            dt));
+        followTrajectory(trajectory, dt));
+  }
+
+  /** Follows a trajectory from wherever odometry currently thinks the robot is. */
+  public static Command followTrajectory(Trajectory trajectory, Drivetrain dt) {
+    return new TrajectoryFollower(
+        new CompiledTrajectory(trajectory, AutoConstants.kTrajectorySampleSeconds), dt);
   }
 
   public static Pose2d makePose(double x, double y, double degrees) {
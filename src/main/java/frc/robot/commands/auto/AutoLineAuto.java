@@ -12,7 +12,6 @@ import java.util.List;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.geometry.Translation2d;
-import edu.wpi.first.wpilibj.trajectory.Trajectory;
 import edu.wpi.first.wpilibj.util.Units;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
@@ -36,14 +35,15 @@ import frc.robot.subsystems.Shooter.HoodState;
 /** Add your docs here. */
 public class AutoLineAuto extends SequentialCommandGroup {
 
-    public static Trajectory trajectory =
+    public static final Path path =
         new Path(
             AutoHelper.makePose(0, 0, 0),
             List.of(new Move().backward(12).get()),
             new Move().backward(24).get(0))
             .setMaxSpeedFPS(8)
-            .setReversed(true)
-            .toTrajectory();
+            .setReversed(true);
+
+    public static final List<Path> paths = List.of(path);
 
   public AutoLineAuto(
       Drivetrain drivetrain,
@@ -55,8 +55,8 @@ public class AutoLineAuto extends SequentialCommandGroup {
       double offsetTime1) {
     
     super(
+    AutoHelper.awaitTrajectories(paths),
     new PrepRobotForFeed(null, shooter, ShooterConstants.kAcceleratorRPMAutoLine, limelight, 5_500, HoodState.AUTOLINE_SHOT),
-    new WaitCommand(ShooterConstants.kSpinUpSeconds), // Waits for flywheel spinup
     new WaitCommand(offsetTime1),
     new FeedSpunUpShooter(hopper, intake, shooter, () -> shooter.getShotsFired() > 100000, 3),
     new ParallelCommandGroup(
@@ -64,7 +64,7 @@ public class AutoLineAuto extends SequentialCommandGroup {
         new ShooterSetAcceleratorSpeed(shooter, 0),
         new HopperSetSpeed(hopper, shooter, 0, 0),
         new IntakeSetRollers(intake, 0),
-        AutoHelper.driveTrajectoryAndStop(trajectory, drivetrain)
+        AutoHelper.driveTrajectoryAndStop(path.toTrajectoryAsync(), drivetrain)
     ));
   }
 }
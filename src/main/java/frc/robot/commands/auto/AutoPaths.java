@@ -0,0 +1,17 @@
+package frc.robot.commands.auto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The paths declared by every autonomous routine. */
+public final class AutoPaths {
+  private AutoPaths() {}
+
+  public static List<Path> getAll() {
+    List<Path> paths = new ArrayList<>();
+    paths.addAll(AutoLineAuto.paths);
+    paths.addAll(WallShotAuto.paths);
+    paths.addAll(SneakyPete.paths);
+    return paths;
+  }
+}
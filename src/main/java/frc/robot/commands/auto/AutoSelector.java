@@ -0,0 +1,112 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Dashboard chooser for autonomous routines. Only the selected routine is ever built: while the
+ * robot is disabled its paths are generated in the background, and once they are ready its command
+ * is constructed on the main thread. Changing the selection starts over, so autonomousInit gets a
+ * ready-made command. A routine that fails to build is retried from the start on the next call.
+ */
+public class AutoSelector {
+  private static class Routine {
+    private final String name;
+    private final List<Path> paths;
+    private final Supplier<Command> factory;
+
+    private Routine(String name, List<Path> paths, Supplier<Command> factory) {
+      this.name = name;
+      this.paths = paths;
+      this.factory = factory;
+    }
+  }
+
+  private final SendableChooser<Routine> chooser = new SendableChooser<>();
+
+  private Routine selectedRoutine;
+  private CompletableFuture<Void> preloaded;
+  private Command command;
+
+  public AutoSelector() {
+    SmartDashboard.putData("Auto routine", chooser);
+  }
+
+  /**
+   * Adds the routine selected when nothing else is picked.
+   *
+   * @param name the name shown on the dashboard
+   * @param paths every path the routine drives
+   * @param factory constructs the routine's command
+   */
+  public void setDefaultOption(String name, List<Path> paths, Supplier<Command> factory) {
+    chooser.setDefaultOption(name, new Routine(name, paths, factory));
+  }
+
+  /**
+   * Adds a routine to the chooser.
+   *
+   * @param name the name shown on the dashboard
+   * @param paths every path the routine drives
+   * @param factory constructs the routine's command
+   */
+  public void addOption(String name, List<Path> paths, Supplier<Command> factory) {
+    chooser.addOption(name, new Routine(name, paths, factory));
+  }
+
+  /**
+   * Starts generating the selected routine's paths if the selection changed, and builds its command
+   * once they are ready. Call periodically while disabled.
+   */
+  public void update() {
+    Routine selected = chooser.getSelected();
+    if (selected != null && selected != selectedRoutine) {
+      selectedRoutine = selected;
+      command = null;
+      preloaded = TrajectoryPreloader.preload(selected.paths);
+      SmartDashboard.putString("Auto ready", "");
+    }
+    if (command == null && preloaded != null && preloaded.isDone()) {
+      build();
+    }
+  }
+
+  /**
+   * Builds the selected routine, waiting for its paths if they aren't ready. Command groups keep a
+   * static set of grouped commands that isn't thread safe, so this only runs on the main thread.
+   */
+  private void build() {
+    try {
+      preloaded.join();
+      command = selectedRoutine.factory.get();
+      SmartDashboard.putString("Auto ready", selectedRoutine.name);
+    } catch (RuntimeException e) {
+      System.out.println("[AutoSelector] Failed to build " + selectedRoutine.name + " -- " + e);
+      // Forget the selection so the next update preloads and builds it again
+      selectedRoutine = null;
+      preloaded = null;
+    }
+  }
+
+  /**
+   * Returns the command for the selected routine, waiting for its paths only if autonomous started
+   * before they finished or the last build failed.
+   *
+   * @return the command to run in autonomous, or null if nothing is selected
+   */
+  public Command getCommand() {
+    update();
+    if (command == null && preloaded != null) {
+      if (!preloaded.isDone()) {
+        System.out.println(
+            "[AutoSelector] " + selectedRoutine.name + " is still building, waiting");
+      }
+      build();
+    }
+    return command;
+  }
+}
@@ -0,0 +1,106 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import java.util.List;
+
+/**
+ * A trajectory resampled at a fixed period into parallel primitive arrays. Looking up a time is an
+ * index calculation and a linear interpolation instead of {@link Trajectory#sample(double)}'s
+ * binary search, and writes into a caller-owned {@link Sample} instead of allocating a new state.
+ */
+public class CompiledTrajectory {
+  /** A mutable trajectory state, reused between lookups. */
+  public static class Sample {
+    public double x, y, heading, velocity, acceleration, curvature;
+  }
+
+  private final double samplePeriod;
+  private final double totalTime;
+  private final double[] x, y, heading, velocity, acceleration, curvature;
+
+  /**
+   * @param trajectory the trajectory to resample
+   * @param samplePeriod the time between samples, in seconds
+   */
+  public CompiledTrajectory(Trajectory trajectory, double samplePeriod) {
+    this.samplePeriod = samplePeriod;
+    totalTime = trajectory.getTotalTimeSeconds();
+
+    int count = (int) Math.ceil(totalTime / samplePeriod) + 1;
+    x = new double[count];
+    y = new double[count];
+    heading = new double[count];
+    velocity = new double[count];
+    acceleration = new double[count];
+    curvature = new double[count];
+
+    // Walk the states once alongside the sample times rather than searching for every sample
+    List<Trajectory.State> states = trajectory.getStates();
+    int next = 1;
+    for (int i = 0; i < count; i++) {
+      double time = Math.min(i * samplePeriod, totalTime);
+      while (next < states.size() - 1 && states.get(next).timeSeconds < time) {
+        next++;
+      }
+      Trajectory.State before = states.get(Math.max(0, next - 1));
+      Trajectory.State after = states.get(Math.min(next, states.size() - 1));
+
+      double span = after.timeSeconds - before.timeSeconds;
+      double t = span > 0 ? (time - before.timeSeconds) / span : 0;
+      // Assume the robot keeps accelerating between states, as Trajectory.sample() does
+      double dt = time - before.timeSeconds;
+      velocity[i] = before.velocityMetersPerSecond + before.accelerationMetersPerSecondSq * dt;
+      acceleration[i] = before.accelerationMetersPerSecondSq;
+      x[i] =
+          lerp(
+              before.poseMeters.getTranslation().getX(),
+              after.poseMeters.getTranslation().getX(),
+              t);
+      y[i] =
+          lerp(
+              before.poseMeters.getTranslation().getY(),
+              after.poseMeters.getTranslation().getY(),
+              t);
+      curvature[i] = lerp(before.curvatureRadPerMeter, after.curvatureRadPerMeter, t);
+
+      double beforeHeading = before.poseMeters.getRotation().getRadians();
+      double headingChange =
+          Math.IEEEremainder(
+              after.poseMeters.getRotation().getRadians() - beforeHeading, 2 * Math.PI);
+      heading[i] = beforeHeading + headingChange * t;
+
+      // Unwrap so that interpolating between neighbouring samples never spins the long way round
+      if (i > 0) {
+        heading[i] = heading[i - 1] + Math.IEEEremainder(heading[i] - heading[i - 1], 2 * Math.PI);
+      }
+    }
+  }
+
+  private static double lerp(double start, double end, double t) {
+    return start + (end - start) * t;
+  }
+
+  public double getTotalTimeSeconds() {
+    return totalTime;
+  }
+
+  /**
+   * Looks up the state at a time, clamped to the ends of the trajectory.
+   *
+   * @param time the time since the start of the trajectory, in seconds
+   * @param out the sample to write the state into
+   */
+  public void sample(double time, Sample out) {
+    double position = Math.max(0, Math.min(time, totalTime)) / samplePeriod;
+    int index = Math.min((int) position, x.length - 1);
+    int nextIndex = Math.min(index + 1, x.length - 1);
+    double t = position - index;
+
+    out.x = lerp(x[index], x[nextIndex], t);
+    out.y = lerp(y[index], y[nextIndex], t);
+    out.heading = lerp(heading[index], heading[nextIndex], t);
+    out.velocity = lerp(velocity[index], velocity[nextIndex], t);
+    out.acceleration = lerp(acceleration[index], acceleration[nextIndex], t);
+    out.curvature = lerp(curvature[index], curvature[nextIndex], t);
+  }
+}
@@ -0,0 +1,47 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import java.util.function.Supplier;
+
+/**
+ * Builds its command when it is first scheduled rather than when the routine is constructed, so
+ * commands that need a trajectory can be declared before the trajectory has finished generating.
+ */
+public class DeferredCommand extends CommandBase {
+  private final Supplier<Command> supplier;
+  private Command command;
+
+  /**
+   * @param supplier builds the command to run; called once, on first initialize
+   * @param requirements the subsystems the built command will require
+   */
+  public DeferredCommand(Supplier<Command> supplier, Subsystem... requirements) {
+    this.supplier = supplier;
+    addRequirements(requirements);
+  }
+
+  @Override
+  public void initialize() {
+    if (command == null) {
+      command = supplier.get();
+    }
+    command.initialize();
+  }
+
+  @Override
+  public void execute() {
+    command.execute();
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    command.end(interrupted);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return command.isFinished();
+  }
+}
@@ -11,12 +11,14 @@ import edu.wpi.first.wpilibj.util.Units;
 import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.DriveConstants;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Path {
   private Pose2d start, end;
   private List<Translation2d> middle;
   private boolean reversed;
   private double maxSpeed, maxAcceleration;
+  private double startVelocity, endVelocity;
 
   public Path(
       Pose2d start,
@@ -58,7 +60,81 @@ public class Path {
     return this;
   }
 
+  /**
+   * Copies this path with the given speeds at its ends, so that it can be chained onto its
+   * neighbours without stopping in between.
+   *
+   * @param startVelocity the speed at the start of the path, in meters per second
+   * @param endVelocity the speed at the end of the path, in meters per second
+   * @return the copy
+   */
+  public Path withBoundaryVelocities(double startVelocity, double endVelocity) {
+    Path copy = new Path(start, middle, end, reversed, maxSpeed, maxAcceleration);
+    copy.startVelocity = startVelocity;
+    copy.endVelocity = endVelocity;
+    return copy;
+  }
+
+  public Pose2d getStart() {
+    return start;
+  }
+
+  public Pose2d getEnd() {
+    return end;
+  }
+
+  public boolean isReversed() {
+    return reversed;
+  }
+
+  public double getMaxSpeed() {
+    return maxSpeed;
+  }
+
+  public double getMaxAcceleration() {
+    return maxAcceleration;
+  }
+
+  /**
+   * @return the length of the straight lines through the waypoints, in meters, which is never
+   *     longer than the spline itself
+   */
+  public double getApproximateLength() {
+    double length = 0;
+    Translation2d previous = start.getTranslation();
+    for (Translation2d waypoint : middle) {
+      length += previous.getDistance(waypoint);
+      previous = waypoint;
+    }
+    return length + previous.getDistance(end.getTranslation());
+  }
+
+  /**
+   * Returns the trajectory for this path. Identical paths share one trajectory through the {@link
+   * TrajectoryCache}, which falls back to generating it live.
+   *
+   * @return the trajectory
+   */
   public Trajectory toTrajectory() {
+    return TrajectoryCache.get(this);
+  }
+
+  /**
+   * Returns the trajectory for this path without blocking, using the generation started by the
+   * {@link TrajectoryPreloader} if there is one.
+   *
+   * @return a future for the trajectory
+   */
+  public CompletableFuture<Trajectory> toTrajectoryAsync() {
+    return TrajectoryPreloader.get(this);
+  }
+
+  /**
+   * Runs the spline generator for this path, ignoring any pre-generated copy.
+   *
+   * @return the freshly generated trajectory
+   */
+  public Trajectory generateTrajectory() {
     return TrajectoryGenerator.generateTrajectory(
         start,
         middle,
@@ -73,6 +149,51 @@ public class Path {
                         DriveConstants.kaVoltSecondsSquaredPerMeter),
                     DriveConstants.kDriveKinematics,
                     AutoConstants.kAutoMaxDriveVoltage))
-            .setReversed(reversed));
+            .setReversed(reversed)
+            .setStartVelocity(startVelocity)
+            .setEndVelocity(endVelocity));
+  }
+
+  /**
+   * Hashes every input that affects the generated trajectory (waypoints, direction, limits, and the
+   * drive characterization), so two paths with the same fingerprint generate the same trajectory.
+   *
+   * @return a stable 64-bit FNV-1a hash of the path's inputs
+   */
+  public long fingerprint() {
+    long hash = 0xcbf29ce484222325L;
+    hash = mix(hash, start);
+    hash = mix(hash, middle.size());
+    for (Translation2d point : middle) {
+      hash = mix(hash, point.getX());
+      hash = mix(hash, point.getY());
+    }
+    hash = mix(hash, end);
+    hash = mix(hash, reversed ? 1 : 0);
+    hash = mix(hash, maxSpeed);
+    hash = mix(hash, maxAcceleration);
+    hash = mix(hash, startVelocity);
+    hash = mix(hash, endVelocity);
+    hash = mix(hash, DriveConstants.ksVolts);
+    hash = mix(hash, DriveConstants.kvVoltSecondsPerMeter);
+    hash = mix(hash, DriveConstants.kaVoltSecondsSquaredPerMeter);
+    hash = mix(hash, DriveConstants.kTrackwidthMeters);
+    hash = mix(hash, AutoConstants.kAutoMaxDriveVoltage);
+    return hash;
+  }
+
+  private static long mix(long hash, Pose2d pose) {
+    hash = mix(hash, pose.getTranslation().getX());
+    hash = mix(hash, pose.getTranslation().getY());
+    return mix(hash, pose.getRotation().getRadians());
+  }
+
+  private static long mix(long hash, double value) {
+    long bits = Double.doubleToLongBits(value);
+    for (int i = 0; i < 8; i++) {
+      hash ^= (bits >>> (i * 8)) & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
   }
 }
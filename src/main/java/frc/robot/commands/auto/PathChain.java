@@ -0,0 +1,147 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Transform2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import frc.robot.Constants.AutoConstants;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Several paths driven back to back as one continuous trajectory. Neighbouring paths that drive in
+ * the same direction hand off at speed instead of stopping, and a change of direction becomes a
+ * cusp where the robot stops only for that instant.
+ *
+ * <p>Each path keeps its shape relative to where the previous one ended (the same thing resetting
+ * odometry at every segment used to do), but the whole chain is followed in one field-relative
+ * pose, so odometry is never reset mid-routine.
+ */
+public class PathChain {
+  private final List<Path> segments = new ArrayList<>();
+  private final double[] segmentStartTimes;
+  private CompletableFuture<Trajectory> trajectory;
+
+  public PathChain(Path... paths) {
+    double[] velocities = getBoundaryVelocities(paths);
+    for (int i = 0; i < paths.length; i++) {
+      segments.add(paths[i].withBoundaryVelocities(velocities[i], velocities[i + 1]));
+    }
+    segmentStartTimes = new double[paths.length];
+  }
+
+  /**
+   * Works out the speed to carry across each boundary: zero at either end of the chain and at a
+   * cusp, and otherwise no faster than either path allows, than the robot can reach since the last
+   * stop, or than it can still stop from by the next one.
+   *
+   * @return the speed at the start of each path, followed by the speed at the end of the last
+   */
+  private static double[] getBoundaryVelocities(Path[] paths) {
+    double[] velocities = new double[paths.length + 1];
+    for (int i = 1; i < paths.length; i++) {
+      if (paths[i - 1].isReversed() == paths[i].isReversed()) {
+        velocities[i] =
+            Math.min(
+                Math.min(paths[i - 1].getMaxSpeed(), paths[i].getMaxSpeed()),
+                getReachableVelocity(velocities[i - 1], paths[i - 1]));
+      }
+    }
+    for (int i = paths.length - 1; i > 0; i--) {
+      velocities[i] = Math.min(velocities[i], getReachableVelocity(velocities[i + 1], paths[i]));
+    }
+    return velocities;
+  }
+
+  /** @return the fastest the robot can be going after a path, given its speed at the other end */
+  private static double getReachableVelocity(double velocity, Path path) {
+    return Math.sqrt(
+        velocity * velocity + 2 * path.getMaxAcceleration() * path.getApproximateLength());
+  }
+
+  /** @return the individual paths that make up this chain, as they will be generated */
+  public List<Path> getSegments() {
+    return segments;
+  }
+
+  /**
+   * Returns the stitched trajectory without blocking. The segments are generated (or loaded)
+   * through the {@link TrajectoryPreloader} like any other path.
+   *
+   * @return a future for the whole chain's trajectory
+   */
+  public synchronized CompletableFuture<Trajectory> toTrajectoryAsync() {
+    if (trajectory == null) {
+      CompletableFuture<?>[] parts =
+          segments.stream().map(Path::toTrajectoryAsync).toArray(CompletableFuture[]::new);
+      trajectory =
+          CompletableFuture.allOf(parts)
+              .thenApply(
+                  ignored -> {
+                    List<Trajectory> trajectories = new ArrayList<>();
+                    for (CompletableFuture<?> part : parts) {
+                      trajectories.add((Trajectory) part.join());
+                    }
+                    return stitch(trajectories);
+                  });
+    }
+    return trajectory;
+  }
+
+  private Trajectory stitch(List<Trajectory> trajectories) {
+    List<Trajectory.State> states = new ArrayList<>();
+    Pose2d anchor = trajectories.get(0).getInitialPose();
+    double timeOffset = 0;
+
+    for (int i = 0; i < trajectories.size(); i++) {
+      List<Trajectory.State> segmentStates = trajectories.get(i).getStates();
+      Pose2d segmentStart = segmentStates.get(0).poseMeters;
+      segmentStartTimes[i] = timeOffset;
+      if (i > 0) {
+        checkBoundary(i, states.get(states.size() - 1), segmentStates.get(0));
+      }
+
+      // The first state of every later segment duplicates the last state of the one before it
+      for (int j = i == 0 ? 0 : 1; j < segmentStates.size(); j++) {
+        Trajectory.State state = segmentStates.get(j);
+        Pose2d relative = state.poseMeters.relativeTo(segmentStart);
+        states.add(
+            new Trajectory.State(
+                state.timeSeconds + timeOffset,
+                state.velocityMetersPerSecond,
+                state.accelerationMetersPerSecondSq,
+                anchor.transformBy(
+                    new Transform2d(relative.getTranslation(), relative.getRotation())),
+                state.curvatureRadPerMeter));
+      }
+
+      anchor = states.get(states.size() - 1).poseMeters;
+      timeOffset = states.get(states.size() - 1).timeSeconds;
+    }
+    return new Trajectory(states);
+  }
+
+  /**
+   * Reports a segment that starts at a different speed from the one before it ends at, which would
+   * ask the follower for a step change in speed.
+   */
+  private static void checkBoundary(int segment, Trajectory.State end, Trajectory.State start) {
+    if (Math.abs(end.velocityMetersPerSecond - start.velocityMetersPerSecond)
+        > AutoConstants.kChainVelocityToleranceMetersPerSecond) {
+      System.out.println(
+          String.format(
+              "[PathChain] Segment %d starts at %.2f m/s, but the one before ends at %.2f m/s",
+              segment, start.velocityMetersPerSecond, end.velocityMetersPerSecond));
+    }
+  }
+
+  /**
+   * Returns when each segment starts, in seconds into the stitched trajectory. Only valid once
+   * {@link #toTrajectoryAsync()} has completed.
+   *
+   * @return the start time of each segment
+   */
+  public double[] getSegmentStartTimes() {
+    return segmentStartTimes;
+  }
+}
@@ -0,0 +1,109 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.util.Units;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.List;
+
+/**
+ * A command to start partway through driving a trajectory, so mechanisms can get ready while the
+ * robot is still moving. Markers are placed by time from the start, time before the end, or
+ * distance travelled, and can be scoped to one segment of a {@link PathChain}.
+ */
+public class PathMarker {
+  private enum Anchor {
+    TIME_FROM_START,
+    TIME_BEFORE_END,
+    DISTANCE
+  }
+
+  private final Anchor anchor;
+  private final double value;
+  private final Command command;
+  private int segment = -1;
+
+  private PathMarker(Anchor anchor, double value, Command command) {
+    this.anchor = anchor;
+    this.value = value;
+    this.command = command;
+  }
+
+  /** Runs a command a number of seconds after the robot starts driving. */
+  public static PathMarker atTime(double seconds, Command command) {
+    return new PathMarker(Anchor.TIME_FROM_START, seconds, command);
+  }
+
+  /** Runs a command a number of seconds before the robot is due to arrive. */
+  public static PathMarker beforeEnd(double seconds, Command command) {
+    return new PathMarker(Anchor.TIME_BEFORE_END, seconds, command);
+  }
+
+  /** Runs a command once the robot has driven a number of inches along the path. */
+  public static PathMarker atDistance(double inches, Command command) {
+    return new PathMarker(Anchor.DISTANCE, Units.inchesToMeters(inches), command);
+  }
+
+  /**
+   * Measures this marker from one segment of a chain rather than from the whole chain.
+   *
+   * @param segment the index of the segment in the chain
+   * @return this marker
+   */
+  public PathMarker inSegment(int segment) {
+    this.segment = segment;
+    return this;
+  }
+
+  public Command getCommand() {
+    return command;
+  }
+
+  int getSegment() {
+    return segment;
+  }
+
+  /**
+   * Works out when this marker fires.
+   *
+   * @param trajectory the trajectory being driven
+   * @param startTime when the marker's segment starts, in seconds into the trajectory
+   * @param endTime when the marker's segment ends, in seconds into the trajectory
+   * @return the time to run the command, in seconds into the trajectory
+   */
+  double getTime(Trajectory trajectory, double startTime, double endTime) {
+    double time;
+    switch (anchor) {
+      case TIME_FROM_START:
+        time = startTime + value;
+        break;
+      case TIME_BEFORE_END:
+        time = endTime - value;
+        break;
+      default:
+        time = getTimeAtDistance(trajectory.getStates(), startTime, value);
+        break;
+    }
+    return Math.max(startTime, Math.min(time, endTime));
+  }
+
+  private static double getTimeAtDistance(
+      List<Trajectory.State> states, double startTime, double distance) {
+    double travelled = 0;
+    for (int i = 1; i < states.size(); i++) {
+      Trajectory.State previous = states.get(i - 1);
+      Trajectory.State state = states.get(i);
+      if (state.timeSeconds <= startTime) {
+        continue;
+      }
+
+      double step =
+          state.poseMeters.getTranslation().getDistance(previous.poseMeters.getTranslation());
+      if (travelled + step >= distance) {
+        double fraction = step > 0 ? (distance - travelled) / step : 0;
+        return previous.timeSeconds + (state.timeSeconds - previous.timeSeconds) * fraction;
+      }
+      travelled += step;
+    }
+    return states.get(states.size() - 1).timeSeconds;
+  }
+}
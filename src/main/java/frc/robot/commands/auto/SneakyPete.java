@@ -7,16 +7,16 @@
 
 package frc.robot.commands.auto;
 
-import edu.wpi.first.wpilibj.trajectory.Trajectory;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
+import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.IntakeConstants;
 import frc.robot.Constants.ShooterConstants;
 import frc.robot.commands.HopperSetSpeed;
 import frc.robot.commands.IntakeSetRollers;
 import frc.robot.commands.IntakeSetState;
 import frc.robot.commands.ShooterSetAcceleratorSpeed;
+import frc.robot.commands.ShooterSetHoodState;
 import frc.robot.commands.ShooterSetSpeed;
 import frc.robot.commands.groups.*;
 import frc.robot.subsystems.Drivetrain;
@@ -31,79 +31,89 @@ import java.util.List;
 public class SneakyPete extends SequentialCommandGroup {
 
   static Move slowingPoint = new Move().forward(89).markAsReference();
-  static Trajectory initialDriveForwards =
+  static final Path initialDriveForwards =
       new Path(
               AutoHelper.makePose(0, 0, 0),
               List.of(new Move().forward(35).get()),
               slowingPoint.get(0))
-          .setMaxSpeedFPS(14)
-          .toTrajectory();
+          .setMaxSpeedFPS(14);
 
   static Move rightBallPoint = slowingPoint.copy().forward(6).markAsReference();
-  static Trajectory slowDriveForwards =
+  static final Path slowDriveForwards =
       new Path(
               slowingPoint.get(0),
               List.of(slowingPoint.copy().forward(5).get()),
               rightBallPoint.get(0))
-          .setMaxSpeedFPS(8)
-          .toTrajectory();
+          .setMaxSpeedFPS(8);
 
   static Move firstReversalPoint = rightBallPoint.copy().backward(40).markAsReference();
-  static Trajectory backup =
+  static final Path backup =
       new Path(
               rightBallPoint.get(0),
               List.of(slowingPoint.copy().backward(8).get()),
               firstReversalPoint.get(0))
           .setMaxSpeedFPS(14)
-          .setReversed(true)
-          .toTrajectory();
+          .setReversed(true);
 
   static Move leftBallPoint = rightBallPoint.copy().left(15).forward(3).markAsReference();
-  static Trajectory intakeLeftBall =
+  static final Path intakeLeftBall =
       new Path(
               firstReversalPoint.get(0),
               List.of(firstReversalPoint.copy().forward(17).left(2).get()),
               leftBallPoint.get(10))
-          .setMaxSpeedFPS(8)
-          .toTrajectory();
+          .setMaxSpeedFPS(8);
 
   static Move secondReversalPoint = leftBallPoint.copy().backward(47).markAsReference();
-  static Trajectory secondBackup =
+  static final Path secondBackup =
       new Path(
               leftBallPoint.get(10),
               List.of(leftBallPoint.copy().backward(25).get()),
               secondReversalPoint.get(10))
           .setMaxSpeedFPS(10)
-          .setReversed(true)
-          .toTrajectory();
+          .setReversed(true);
 
   static Move shotPoint = leftBallPoint.copy().left(150).backward(90).markAsReference();
-  static Trajectory goToShootPosition =
+  static final Path goToShootPosition =
       new Path(
               firstReversalPoint.get(0),
               List.of(leftBallPoint.copy().left(75).backward(40).get()),
               shotPoint.get(-180 - 25))
-          .setMaxSpeedFPS(14)
-          .toTrajectory();
+          .setMaxSpeedFPS(14);
+
+  static final PathChain chain =
+      new PathChain(
+          initialDriveForwards,
+          slowDriveForwards,
+          backup,
+          intakeLeftBall,
+          secondBackup,
+          goToShootPosition);
+
+  public static final List<Path> paths = chain.getSegments();
 
   public SneakyPete(
       Drivetrain drivetrain, Intake intake, Shooter shooter, Hopper hopper, Limelight limelight) {
     super(
-        new ParallelCommandGroup(
-            new IntakeSetState(intake, IntakeState.EXTENDED),
-            new IntakeSetRollers(intake, IntakeConstants.kIntakeSpeed),
-            new SequentialCommandGroup(
-                AutoHelper.driveTrajectoryAndStop(initialDriveForwards, drivetrain),
-                AutoHelper.driveTrajectoryAndStop(slowDriveForwards, drivetrain))),
-        new WaitCommand(0.05),
-        new IntakeSetRollers(intake, 0),
-        AutoHelper.driveTrajectoryAndStop(backup, drivetrain),
+        AutoHelper.awaitTrajectories(paths),
+        new IntakeSetState(intake, IntakeState.EXTENDED),
         new IntakeSetRollers(intake, IntakeConstants.kIntakeSpeed),
-        AutoHelper.driveTrajectoryAndStop(intakeLeftBall, drivetrain),
-        new WaitCommand(0.05),
-        AutoHelper.driveTrajectoryAndStop(secondBackup, drivetrain),
-        new IntakeSetRollers(intake, 0),
-        AutoHelper.driveTrajectoryAndStop(goToShootPosition, drivetrain),
+        // Drive the whole route without stopping, switching the rollers as each segment starts
+        // and spinning the shooter up before we arrive
+        AutoHelper.driveChainAndStop(
+            chain,
+            drivetrain,
+            PathMarker.atTime(0, new IntakeSetRollers(intake, 0)).inSegment(2),
+            PathMarker.atTime(0, new IntakeSetRollers(intake, IntakeConstants.kIntakeSpeed))
+                .inSegment(3),
+            PathMarker.atTime(0, new IntakeSetRollers(intake, 0)).inSegment(5),
+            PathMarker.beforeEnd(
+                    AutoConstants.kShooterSpinUpLeadSeconds,
+                    new ParallelCommandGroup(
+                        new ShooterSetHoodState(shooter, HoodState.AUTOLINE_SHOT),
+                        new ShooterSetSpeed(shooter, ShooterConstants.kAutoLineRPM),
+                        new ShooterSetAcceleratorSpeed(
+                            shooter, ShooterConstants.kAcceleratorRPMAutoLine)))
+                .inSegment(5)),
         new PrepRobotForFeed(
             drivetrain,
             shooter,
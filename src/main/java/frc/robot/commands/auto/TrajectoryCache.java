@@ -0,0 +1,193 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import frc.robot.Constants.AutoConstants;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Memoizes generated trajectories by {@link Path#fingerprint()}. Lookups check a bounded in-memory
+ * LRU, then the deployed trajectory files, then an on-disk cache that survives reboots, and only
+ * run the spline generator when all three miss.
+ *
+ * <p>The on-disk tier is bounded too: it keeps the {@link
+ * AutoConstants#kTrajectoryDiskCacheMaxFiles} most recently used files, going by their modified
+ * times, which are bumped whenever a file is loaded.
+ *
+ * <p>Concurrent lookups of a path that isn't in memory share one load, so it is generated and
+ * written to disk once.
+ */
+public final class TrajectoryCache {
+  private static final Map<Long, Trajectory> memory =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Trajectory> eldest) {
+          return size() > AutoConstants.kTrajectoryCacheSize;
+        }
+      };
+  // Loads in progress, guarded by the memory tier's lock. Each is removed when it reaches memory
+  private static final Map<Long, CompletableFuture<Trajectory>> loads = new HashMap<>();
+
+  private static int memoryHits = 0;
+  private static int fileHits = 0;
+  private static int misses = 0;
+  private static double generationSeconds = 0;
+
+  private static final Object diskLock = new Object();
+  private static boolean diskCacheChecked = false;
+
+  private TrajectoryCache() {}
+
+  /**
+   * Returns the trajectory for a path, generating it only if no tier of the cache has it.
+   *
+   * @param path the path to get the trajectory for
+   * @return the trajectory
+   */
+  public static Trajectory get(Path path) {
+    long fingerprint = path.fingerprint();
+
+    CompletableFuture<Trajectory> load;
+    boolean loading = false;
+    synchronized (memory) {
+      Trajectory trajectory = memory.get(fingerprint);
+      if (trajectory != null) {
+        memoryHits++;
+        publish();
+        return trajectory;
+      }
+      load = loads.get(fingerprint);
+      if (load == null) {
+        load = new CompletableFuture<>();
+        loads.put(fingerprint, load);
+        loading = true;
+      }
+    }
+
+    if (!loading) {
+      try {
+        return load.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+
+    try {
+      Trajectory trajectory = load(path, fingerprint);
+      load.complete(trajectory);
+      return trajectory;
+    } catch (RuntimeException | Error e) {
+      synchronized (memory) {
+        loads.remove(fingerprint);
+      }
+      load.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /** Reads a path's trajectory from the deployed files or the disk tier, or generates it. */
+  private static Trajectory load(Path path, long fingerprint) {
+    Trajectory trajectory = TrajectoryFile.load(fingerprint);
+    File diskCache = getDiskCacheDirectory();
+    if (trajectory == null && diskCache != null) {
+      trajectory = TrajectoryFile.load(diskCache, fingerprint);
+      if (trajectory != null) {
+        TrajectoryFile.getFile(diskCache, fingerprint).setLastModified(System.currentTimeMillis());
+      }
+    }
+
+    boolean generated = trajectory == null;
+    double generationTime = 0;
+    if (generated) {
+      long startTime = System.nanoTime();
+      trajectory = path.generateTrajectory();
+      generationTime = (System.nanoTime() - startTime) / 1e9;
+
+      if (diskCache != null) {
+        try {
+          TrajectoryFile.write(diskCache, fingerprint, trajectory);
+          trimDiskCache(diskCache);
+        } catch (IOException e) {
+          System.out.println("[TrajectoryCache] Unable to write to disk cache -- " + e);
+        }
+      }
+    }
+
+    synchronized (memory) {
+      memory.put(fingerprint, trajectory);
+      loads.remove(fingerprint);
+      if (generated) {
+        misses++;
+        generationSeconds += generationTime;
+      } else {
+        fileHits++;
+      }
+      publish();
+    }
+    return trajectory;
+  }
+
+  /** Empties the in-memory tier. Deployed and on-disk trajectories are left alone. */
+  public static void clear() {
+    synchronized (memory) {
+      memory.clear();
+    }
+  }
+
+  private static File getDiskCacheDirectory() {
+    if (!AutoConstants.kUseTrajectoryDiskCache) {
+      return null;
+    }
+    // Only use the disk tier where its parent exists (the roboRIO), not on random dev machines
+    File directory = new File(AutoConstants.kTrajectoryDiskCacheDirectory);
+    if (!directory.getParentFile().isDirectory()) {
+      return null;
+    }
+
+    synchronized (diskLock) {
+      if (!diskCacheChecked) {
+        // Writes that were cut off by a reboot leave their temporary files behind
+        diskCacheChecked = true;
+        File[] temps =
+            directory.listFiles((dir, name) -> name.endsWith(TrajectoryFile.kTempExtension));
+        if (temps != null) {
+          for (File temp : temps) {
+            temp.delete();
+          }
+        }
+      }
+    }
+    return directory;
+  }
+
+  /** Deletes the least recently used files in the disk tier until it is back within its bound. */
+  private static void trimDiskCache(File directory) {
+    synchronized (diskLock) {
+      File[] files = directory.listFiles((dir, name) -> name.endsWith(TrajectoryFile.kExtension));
+      if (files == null || files.length <= AutoConstants.kTrajectoryDiskCacheMaxFiles) {
+        return;
+      }
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      for (int i = 0; i < files.length - AutoConstants.kTrajectoryDiskCacheMaxFiles; i++) {
+        if (!files[i].delete()) {
+          System.out.println("[TrajectoryCache] Unable to delete " + files[i].getName());
+        }
+      }
+    }
+  }
+
+  private static void publish() {
+    SmartDashboard.putNumber("Trajectory cache memory hits", memoryHits);
+    SmartDashboard.putNumber("Trajectory cache file hits", fileHits);
+    SmartDashboard.putNumber("Trajectory cache misses", misses);
+    SmartDashboard.putNumber("Trajectory generation time (s)", generationSeconds);
+  }
+}
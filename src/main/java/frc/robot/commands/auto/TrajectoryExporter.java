@@ -0,0 +1,31 @@
+package frc.robot.commands.auto;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Build-time entry point that generates every autonomous path and writes it to the deploy
+ * directory, so the robot can load trajectories at boot instead of running the spline generator.
+ * Run through the {@code generateTrajectories} Gradle task.
+ */
+public final class TrajectoryExporter {
+  private TrajectoryExporter() {}
+
+  public static void main(String... args) throws IOException {
+    File directory =
+        new File(args.length > 0 ? args[0] : "src/main/deploy/" + TrajectoryFile.kDirectoryName);
+
+    // Clear out trajectories for paths that no longer exist
+    File[] oldFiles = directory.listFiles((dir, name) -> name.endsWith(TrajectoryFile.kExtension));
+    if (oldFiles != null) {
+      for (File oldFile : oldFiles) {
+        oldFile.delete();
+      }
+    }
+
+    for (Path path : AutoPaths.getAll()) {
+      File file = TrajectoryFile.write(directory, path.fingerprint(), path.generateTrajectory());
+      System.out.println("[TrajectoryExporter] Wrote " + file.getPath());
+    }
+  }
+}
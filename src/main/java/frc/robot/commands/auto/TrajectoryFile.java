@@ -0,0 +1,175 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes pre-generated trajectories as compact binary files. Files are named by the
+ * {@link Path#fingerprint()} of the path that produced them, so editing a path in code simply
+ * misses the old file instead of loading a stale trajectory.
+ *
+ * <p>Layout (big-endian): magic, version, fingerprint, state count, CRC32 of the payload, then one
+ * record per state of time, velocity, acceleration, x, y, heading (radians) and curvature.
+ */
+public final class TrajectoryFile {
+  public static final String kDirectoryName = "trajectories";
+  public static final String kExtension = ".traj";
+  // Files are written under this extension, then renamed into place once complete
+  public static final String kTempExtension = ".tmp";
+
+  private static final int kMagic = 0x5452414A; // "TRAJ"
+  private static final int kVersion = 1;
+  private static final int kHeaderBytes = 4 + 4 + 8 + 4 + 4;
+  private static final int kStateBytes = 7 * 8;
+
+  private TrajectoryFile() {}
+
+  public static File getFile(File directory, long fingerprint) {
+    return new File(directory, String.format("%016x", fingerprint) + kExtension);
+  }
+
+  /**
+   * Memory-maps the deployed trajectory for the given fingerprint.
+   *
+   * @param fingerprint the fingerprint of the path to load
+   * @return the trajectory, or null if the file is missing, corrupt, or for a different path
+   */
+  public static Trajectory load(long fingerprint) {
+    return load(new File(Filesystem.getDeployDirectory(), kDirectoryName), fingerprint);
+  }
+
+  /**
+   * Memory-maps the trajectory for the given fingerprint out of a directory.
+   *
+   * @param directory the directory to look in
+   * @param fingerprint the fingerprint of the path to load
+   * @return the trajectory, or null if the file is missing, corrupt, or for a different path
+   */
+  public static Trajectory load(File directory, long fingerprint) {
+    File file = getFile(directory, fingerprint);
+    if (!file.isFile()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      Trajectory trajectory = read(buffer, fingerprint);
+      if (trajectory == null) {
+        System.out.println("[TrajectoryFile] Ignoring invalid trajectory file " + file.getName());
+      }
+      return trajectory;
+    } catch (IOException e) {
+      System.out.println("[TrajectoryFile] Unable to read " + file.getName() + " -- " + e);
+      return null;
+    }
+  }
+
+  private static Trajectory read(ByteBuffer buffer, long fingerprint) {
+    if (buffer.remaining() < kHeaderBytes
+        || buffer.getInt() != kMagic
+        || buffer.getInt() != kVersion
+        || buffer.getLong() != fingerprint) {
+      return null;
+    }
+
+    int stateCount = buffer.getInt();
+    int checksum = buffer.getInt();
+    if (stateCount <= 0 || buffer.remaining() != stateCount * kStateBytes) {
+      return null;
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    if ((int) crc.getValue() != checksum) {
+      return null;
+    }
+
+    List<Trajectory.State> states = new ArrayList<>(stateCount);
+    for (int i = 0; i < stateCount; i++) {
+      double time = buffer.getDouble();
+      double velocity = buffer.getDouble();
+      double acceleration = buffer.getDouble();
+      double x = buffer.getDouble();
+      double y = buffer.getDouble();
+      double heading = buffer.getDouble();
+      double curvature = buffer.getDouble();
+      states.add(
+          new Trajectory.State(
+              time, velocity, acceleration, new Pose2d(x, y, new Rotation2d(heading)), curvature));
+    }
+    return new Trajectory(states);
+  }
+
+  /**
+   * Writes a trajectory into the given directory, named by its path's fingerprint. The file is
+   * written and synced under a temporary name, then renamed over any existing one, so a reader or a
+   * power cut never sees it half written.
+   *
+   * @param directory the directory to write into
+   * @param fingerprint the fingerprint of the path that generated the trajectory
+   * @param trajectory the trajectory to write
+   * @return the written file
+   */
+  public static File write(File directory, long fingerprint, Trajectory trajectory)
+      throws IOException {
+    List<Trajectory.State> states = trajectory.getStates();
+    ByteBuffer payload = ByteBuffer.allocate(states.size() * kStateBytes);
+    for (Trajectory.State state : states) {
+      payload.putDouble(state.timeSeconds);
+      payload.putDouble(state.velocityMetersPerSecond);
+      payload.putDouble(state.accelerationMetersPerSecondSq);
+      payload.putDouble(state.poseMeters.getTranslation().getX());
+      payload.putDouble(state.poseMeters.getTranslation().getY());
+      payload.putDouble(state.poseMeters.getRotation().getRadians());
+      payload.putDouble(state.curvatureRadPerMeter);
+    }
+    payload.flip();
+
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+
+    ByteBuffer header = ByteBuffer.allocate(kHeaderBytes);
+    header.putInt(kMagic);
+    header.putInt(kVersion);
+    header.putLong(fingerprint);
+    header.putInt(states.size());
+    header.putInt((int) crc.getValue());
+    header.flip();
+
+    directory.mkdirs();
+    File file = getFile(directory, fingerprint);
+    File temp = File.createTempFile(file.getName() + "-", kTempExtension, directory);
+    try {
+      try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+        while (header.hasRemaining()) {
+          channel.write(header);
+        }
+        while (payload.hasRemaining()) {
+          channel.write(payload);
+        }
+        channel.force(true);
+      }
+      Files.move(
+          temp.toPath(),
+          file.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      temp.delete();
+    }
+    return file;
+  }
+}
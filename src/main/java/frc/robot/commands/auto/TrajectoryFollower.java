@@ -0,0 +1,122 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ * Follows a {@link CompiledTrajectory} with the same RAMSETE control as {@link
+ * edu.wpi.first.wpilibj2.command.RamseteCommand}, but works entirely in primitives so that it
+ * allocates nothing while running. The wheel speeds are tracked by the drivetrain's onboard
+ * velocity loops.
+ */
+public class TrajectoryFollower extends CommandBase {
+  private final CompiledTrajectory trajectory;
+  private final Drivetrain m_drivetrain;
+  private final CompiledTrajectory.Sample reference = new CompiledTrajectory.Sample();
+
+  private double startTime;
+  private double prevTime;
+  private final double[] pose = new double[3];
+  private final double[] wheelSpeeds = new double[2];
+  private double prevLeftSpeedSetpoint, prevRightSpeedSetpoint;
+
+  public TrajectoryFollower(CompiledTrajectory trajectory, Drivetrain drivetrain) {
+    this.trajectory = trajectory;
+    m_drivetrain = drivetrain;
+    addRequirements(drivetrain);
+  }
+
+  @Override
+  public void initialize() {
+    startTime = Timer.getFPGATimestamp();
+    prevTime = 0;
+
+    trajectory.sample(0, reference);
+    calculateWheelSpeeds(reference, reference.x, reference.y, reference.heading, wheelSpeeds);
+    prevLeftSpeedSetpoint = wheelSpeeds[0];
+    prevRightSpeedSetpoint = wheelSpeeds[1];
+  }
+
+  @Override
+  public void execute() {
+    double currentTime = Timer.getFPGATimestamp() - startTime;
+    double dt = currentTime - prevTime;
+
+    m_drivetrain.getPose(pose);
+    trajectory.sample(currentTime, reference);
+    calculateWheelSpeeds(reference, pose[0], pose[1], pose[2], wheelSpeeds);
+    double leftSpeedSetpoint = wheelSpeeds[0];
+    double rightSpeedSetpoint = wheelSpeeds[1];
+
+    m_drivetrain.tankDriveVelocity(
+        leftSpeedSetpoint,
+        rightSpeedSetpoint,
+        dt > 0 ? (leftSpeedSetpoint - prevLeftSpeedSetpoint) / dt : 0,
+        dt > 0 ? (rightSpeedSetpoint - prevRightSpeedSetpoint) / dt : 0);
+
+    prevTime = currentTime;
+    prevLeftSpeedSetpoint = leftSpeedSetpoint;
+    prevRightSpeedSetpoint = rightSpeedSetpoint;
+  }
+
+  /**
+   * Runs the RAMSETE control law and converts the result to wheel speed setpoints.
+   *
+   * @param reference the trajectory state the robot should be at
+   * @param x the robot's x position, in meters
+   * @param y the robot's y position, in meters
+   * @param heading the robot's heading, in radians
+   * @param wheelSpeeds receives the left and right wheel speed setpoints, in meters per second
+   */
+  static void calculateWheelSpeeds(
+      CompiledTrajectory.Sample reference,
+      double x,
+      double y,
+      double heading,
+      double[] wheelSpeeds) {
+    // Error in the robot's frame of reference
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    double dx = reference.x - x;
+    double dy = reference.y - y;
+    double errorX = cos * dx + sin * dy;
+    double errorY = -sin * dx + cos * dy;
+    double errorTheta = Math.IEEEremainder(reference.heading - heading, 2 * Math.PI);
+
+    double linearRef = reference.velocity;
+    double angularRef = reference.velocity * reference.curvature;
+    double k =
+        2.0
+            * AutoConstants.kRamseteZeta
+            * Math.sqrt(angularRef * angularRef + AutoConstants.kRamseteB * linearRef * linearRef);
+
+    double linear = linearRef * Math.cos(errorTheta) + k * errorX;
+    double angular =
+        angularRef
+            + k * errorTheta
+            + AutoConstants.kRamseteB * linearRef * sinc(errorTheta) * errorY;
+
+    double halfTrackwidth = DriveConstants.kTrackwidthMeters / 2.0;
+    wheelSpeeds[0] = linear - angular * halfTrackwidth;
+    wheelSpeeds[1] = linear + angular * halfTrackwidth;
+  }
+
+  private static double sinc(double x) {
+    return Math.abs(x) < 1e-9 ? 1.0 - x * x / 6.0 : Math.sin(x) / x;
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    // The drive runs velocity loops on the motor controllers, which would otherwise hold the last
+    // setpoint and keep driving
+    m_drivetrain.tankDriveVolts(0, 0);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return Timer.getFPGATimestamp() - startTime > trajectory.getTotalTimeSeconds();
+  }
+}
@@ -0,0 +1,79 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generates trajectories on a background {@link ForkJoinPool} so robot init doesn't wait on the
+ * spline generator. Routines get a future for each of their paths and resolve it right before they
+ * start driving.
+ *
+ * <p>Only generations still in progress are tracked here, so two requests for the same path share
+ * one. Finished trajectories are kept, and evicted, by the {@link TrajectoryCache} alone.
+ */
+public final class TrajectoryPreloader {
+  private static final ForkJoinPool pool =
+      new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+  private static final Map<Long, CompletableFuture<Trajectory>> futures = new HashMap<>();
+
+  private TrajectoryPreloader() {}
+
+  /**
+   * Starts generating every given path in parallel and returns immediately. The total wall time is
+   * reported once the last path finishes.
+   *
+   * @param paths the paths to generate
+   * @return a future that completes when every path has been generated
+   */
+  public static CompletableFuture<Void> preload(Collection<Path> paths) {
+    long startTime = System.nanoTime();
+    CompletableFuture<?>[] started =
+        paths.stream().map(TrajectoryPreloader::get).toArray(CompletableFuture[]::new);
+
+    return CompletableFuture.allOf(started)
+        .whenComplete(
+            (result, error) -> {
+              double wallTime = (System.nanoTime() - startTime) / 1e9;
+              SmartDashboard.putNumber("Trajectory preload time (s)", wallTime);
+              System.out.println(
+                  "[TrajectoryPreloader] Generated "
+                      + started.length
+                      + " trajectories in "
+                      + wallTime
+                      + "s");
+            });
+  }
+
+  /**
+   * Returns the future for a path's trajectory, joining its generation if one is in progress and
+   * otherwise fetching it from the {@link TrajectoryCache} in the background.
+   *
+   * @param path the path to get the trajectory for
+   * @return a future for the trajectory
+   */
+  public static CompletableFuture<Trajectory> get(Path path) {
+    long fingerprint = path.fingerprint();
+    synchronized (futures) {
+      CompletableFuture<Trajectory> future = futures.get(fingerprint);
+      if (future == null) {
+        CompletableFuture<Trajectory> started =
+            CompletableFuture.supplyAsync(path::toTrajectory, pool);
+        futures.put(fingerprint, started);
+        // Added after the put, so a generation that has already finished is still removed
+        started.whenComplete(
+            (trajectory, error) -> {
+              synchronized (futures) {
+                futures.remove(fingerprint, started);
+              }
+            });
+        future = started;
+      }
+      return future;
+    }
+  }
+}
@@ -7,7 +7,6 @@
 
 package frc.robot.commands.auto;
 
-import edu.wpi.first.wpilibj.trajectory.Trajectory;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
@@ -30,13 +29,14 @@ import frc.robot.subsystems.Shooter.HoodState;
 import java.util.List;
 
 public class WallShotAuto extends SequentialCommandGroup {
-  public static Trajectory trajectory =
+  public static final Path path =
       new Path(
               AutoHelper.makePose(0, 0, 0),
               List.of(new Move().forward(35).get()),
               new Move().forward(75).get(0))
-          .setMaxSpeedFPS(8)
-          .toTrajectory();
+          .setMaxSpeedFPS(8);
+
+  public static final List<Path> paths = List.of(path);
 
   public WallShotAuto(
       Drivetrain drivetrain,
@@ -46,10 +46,11 @@ public class WallShotAuto extends SequentialCommandGroup {
       Limelight limelight,
       double offsetTime) {
     super(
+        AutoHelper.awaitTrajectories(paths),
         new ParallelCommandGroup(
             new IntakeSetState(intake, IntakeState.EXTENDED),
             new IntakeSetRollers(intake, IntakeConstants.kIntakeSpeed),
-            AutoHelper.driveTrajectoryAndStop(trajectory, drivetrain),
+            AutoHelper.driveTrajectoryAndStop(path.toTrajectoryAsync(), drivetrain),
             new PrepRobotForFeed(
                 null,
                 shooter,
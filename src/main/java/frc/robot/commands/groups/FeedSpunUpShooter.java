@@ -4,7 +4,7 @@ import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
 import frc.robot.Constants.HopperConstants;
 import frc.robot.Constants.IntakeConstants;
-import frc.robot.commands.HopperSetSpeed;
+import frc.robot.commands.HopperMeteredFeed;
 import frc.robot.commands.IntakeSetRollers;
 import frc.robot.subsystems.Hopper;
 import frc.robot.subsystems.Intake;
@@ -16,14 +16,13 @@ public class FeedSpunUpShooter extends ParallelCommandGroup {
   public FeedSpunUpShooter(
       Hopper hopper, Intake intake, Shooter shooter, BooleanSupplier endCondition, double timeout) {
     addCommands(
-        // Spin up hopper
-        new HopperSetSpeed(
-            hopper, shooter, HopperConstants.kLeftNormalFeedSpeed, HopperConstants.kRightNormalFeedSpeed),
         // Intaking to make sure powercells don't get stuck in intake
         new IntakeSetRollers(intake, IntakeConstants.kIntakeSpeed),
 
-        // Wait until the end condition is satisfied,
-        // or until time elapses
-        new WaitUntilCommand(endCondition).withTimeout(timeout));
+        // Feed the hopper, pausing between shots for the flywheel to recover,
+        // until the end condition is satisfied or until time elapses
+        new HopperMeteredFeed(
+                hopper, shooter, HopperConstants.kLeftNormalFeedSpeed, HopperConstants.kRightNormalFeedSpeed)
+            .raceWith(new WaitUntilCommand(endCondition).withTimeout(timeout)));
   }
 }
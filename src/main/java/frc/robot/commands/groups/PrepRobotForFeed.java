@@ -1,20 +1,18 @@
 package frc.robot.commands.groups;
 
-import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
-import edu.wpi.first.wpilibj2.command.SelectCommand;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
+import frc.robot.Constants.LimelightConstants;
 import frc.robot.Constants.ShooterConstants;
 import frc.robot.commands.DrivetrainAlignToGoal;
 import frc.robot.commands.ShooterSetAcceleratorSpeed;
 import frc.robot.commands.ShooterSetHoodState;
 import frc.robot.commands.ShooterSetSpeed;
+import frc.robot.commands.ShooterWaitUntilReady;
 import frc.robot.subsystems.Drivetrain;
-import frc.robot.subsystems.Intake;
 import frc.robot.subsystems.Limelight;
 import frc.robot.subsystems.Shooter;
 import frc.robot.subsystems.Shooter.HoodState;
-import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 public class PrepRobotForFeed extends ParallelCommandGroup {
   public PrepRobotForFeed(
@@ -24,17 +22,20 @@ public class PrepRobotForFeed extends ParallelCommandGroup {
       Limelight limelight,
       double shooterRPM,
       HoodState hoodState) {
+    // If the drivetrain was provided, align to the goal
+    BooleanSupplier aligned = () -> true;
+    if (drivetrain != null) {
+      DrivetrainAlignToGoal alignToGoal = new DrivetrainAlignToGoal(drivetrain, limelight);
+      addCommands(alignToGoal.withTimeout(LimelightConstants.kAlignmentTimeoutSeconds));
+      aligned = alignToGoal::isFinished;
+    }
+
     addCommands(
         new ShooterSetHoodState(shooter, hoodState),
-        // If the drivetrain was provided, align to the goal
-        new SelectCommand(
-            Map.ofEntries(
-                Map.entry(false, new DrivetrainAlignToGoal(drivetrain, limelight)),
-                Map.entry(true, new InstantCommand())),
-            () -> drivetrain == null),
-        // Spin the shooter up and wait for it to reach full speed
-        new ShooterSetSpeed(shooter, shooterRPM, true).withTimeout(2.5),
+        new ShooterSetSpeed(shooter, shooterRPM),
         new ShooterSetAcceleratorSpeed(shooter, acceleratorRPM),
-        new WaitCommand(ShooterConstants.kSpinUpSeconds));
+        // Wait until the shooter is up to speed, the hood has settled, and the robot is aligned
+        new ShooterWaitUntilReady(shooter, aligned)
+            .withTimeout(ShooterConstants.kReadyTimeoutSeconds));
   }
 }
@@ -0,0 +1,221 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.CANError;
+import com.revrobotics.CANPIDController;
+import com.revrobotics.CANPIDController.ArbFFUnits;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.ControlType;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.CANConstants;
+import frc.robot.subsystems.StatusFrameProfile.Phase;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A SPARK MAX that only sends a setpoint or setting over CAN when it differs from the last one
+ * sent, so subsystems can keep calling {@link #set(double)} every loop without flooding the bus.
+ * Unchanged setpoints are still resent every {@link CANConstants#kKeepAliveSeconds} in case a frame
+ * was lost.
+ *
+ * <p>Closed-loop setpoints must go through {@link #setReference} rather than {@code
+ * getPIDController().setReference}, so the cache sees them.
+ *
+ * <p>Each device also carries a {@link StatusFrameProfile} per match phase, and {@link
+ * #setPhase(Phase)} switches every device over when the phase changes.
+ */
+public class CachedSparkMax extends CANSparkMax {
+  private static final List<CachedSparkMax> devices = new CopyOnWriteArrayList<>();
+  private static final StatusFrameProfile kFactoryFrames = new StatusFrameProfile(10, 20, 20);
+  private static Phase phase = Phase.DISABLED;
+
+  private double lastValue = Double.NaN, lastArbFeedforward;
+  private ControlType lastControlType;
+  private int lastSlot;
+  private double lastSendTime;
+
+  private double openLoopRampRate = Double.NaN, closedLoopRampRate = Double.NaN;
+  private IdleMode idleMode;
+
+  private final StatusFrameProfile[] profiles = new StatusFrameProfile[Phase.values().length];
+  private volatile StatusFrameProfile activeProfile;
+  private int status0Ms = -1, status1Ms = -1, status2Ms = -1;
+  private long sent, suppressed;
+  private final String sentKey, suppressedKey;
+  private final CANPIDController pidController;
+
+  public CachedSparkMax(int deviceId, MotorType type) {
+    super(deviceId, type);
+    pidController = super.getPIDController();
+    sentKey = "CAN " + deviceId + " sent";
+    suppressedKey = "CAN " + deviceId + " suppressed";
+    devices.add(this);
+  }
+
+  /** @return the device's PID controller, created once rather than on every call */
+  @Override
+  public CANPIDController getPIDController() {
+    return pidController;
+  }
+
+  @Override
+  public synchronized void set(double speed) {
+    if (shouldSend(speed, ControlType.kDutyCycle, 0, 0)) {
+      super.set(speed);
+    }
+  }
+
+  /**
+   * Sends a closed-loop setpoint, with a feedforward voltage, unless it matches the last one.
+   *
+   * @param value the setpoint, in the units of the control type
+   * @param controlType the control mode
+   * @param slot the PID slot to use
+   * @param arbFeedforward the feedforward, in volts
+   */
+  public synchronized void setReference(
+      double value, ControlType controlType, int slot, double arbFeedforward) {
+    if (shouldSend(value, controlType, slot, arbFeedforward)) {
+      pidController.setReference(value, controlType, slot, arbFeedforward, ArbFFUnits.kVoltage);
+    }
+  }
+
+  private boolean shouldSend(
+      double value, ControlType controlType, int slot, double arbFeedforward) {
+    double now = Timer.getFPGATimestamp();
+    if (value == lastValue
+        && controlType == lastControlType
+        && slot == lastSlot
+        && arbFeedforward == lastArbFeedforward
+        && now - lastSendTime < CANConstants.kKeepAliveSeconds) {
+      suppressed++;
+      return false;
+    }
+
+    lastValue = value;
+    lastControlType = controlType;
+    lastSlot = slot;
+    lastArbFeedforward = arbFeedforward;
+    lastSendTime = now;
+    sent++;
+    return true;
+  }
+
+  @Override
+  public synchronized CANError setOpenLoopRampRate(double rate) {
+    if (rate == openLoopRampRate) {
+      suppressed++;
+      return CANError.kOk;
+    }
+    openLoopRampRate = rate;
+    sent++;
+    return super.setOpenLoopRampRate(rate);
+  }
+
+  @Override
+  public synchronized CANError setClosedLoopRampRate(double rate) {
+    if (rate == closedLoopRampRate) {
+      suppressed++;
+      return CANError.kOk;
+    }
+    closedLoopRampRate = rate;
+    sent++;
+    return super.setClosedLoopRampRate(rate);
+  }
+
+  @Override
+  public synchronized CANError setIdleMode(IdleMode mode) {
+    if (mode == idleMode) {
+      suppressed++;
+      return CANError.kOk;
+    }
+    idleMode = mode;
+    sent++;
+    return super.setIdleMode(mode);
+  }
+
+  /**
+   * Sets which status frame profile this device uses in each phase, and switches to the one for the
+   * current phase. Call this after {@code restoreFactoryDefaults()}, which resets the periods.
+   */
+  public synchronized void setStatusFrameProfiles(
+      StatusFrameProfile disabled, StatusFrameProfile autonomous, StatusFrameProfile teleop) {
+    profiles[Phase.DISABLED.ordinal()] = disabled;
+    profiles[Phase.AUTONOMOUS.ordinal()] = autonomous;
+    profiles[Phase.TELEOP.ordinal()] = teleop;
+    status0Ms = status1Ms = status2Ms = -1;
+    applyProfile(phase);
+  }
+
+  private synchronized void applyProfile(Phase phase) {
+    StatusFrameProfile profile = profiles[phase.ordinal()];
+    if (profile == null) {
+      return; // Left at the factory periods
+    }
+    activeProfile = profile;
+    if (profile.status0Ms != status0Ms) {
+      status0Ms = profile.status0Ms;
+      setPeriodicFramePeriod(PeriodicFrame.kStatus0, status0Ms);
+    }
+    if (profile.status1Ms != status1Ms) {
+      status1Ms = profile.status1Ms;
+      setPeriodicFramePeriod(PeriodicFrame.kStatus1, status1Ms);
+    }
+    if (profile.status2Ms != status2Ms) {
+      status2Ms = profile.status2Ms;
+      setPeriodicFramePeriod(PeriodicFrame.kStatus2, status2Ms);
+    }
+  }
+
+  /**
+   * Switches every device to its status frame profile for a match phase, and puts the resulting bus
+   * load estimate on the dashboard.
+   */
+  public static void setPhase(Phase newPhase) {
+    phase = newPhase;
+    for (CachedSparkMax device : devices) {
+      device.applyProfile(newPhase);
+    }
+
+    double busLoad = getEstimatedBusLoad();
+    SmartDashboard.putNumber("CAN status frame load (%)", busLoad * 100);
+    System.out.println(
+        String.format(
+            "[CachedSparkMax] %s status frames, about %.0f%% of the bus", newPhase, busLoad * 100));
+  }
+
+  /**
+   * Estimates how much of the bus the SPARK MAXes' status frames take up, from each device's active
+   * profile. Devices without a profile are counted at the factory periods.
+   *
+   * @return the estimated fraction of the bus in use
+   */
+  public static double getEstimatedBusLoad() {
+    double load = 0;
+    for (CachedSparkMax device : devices) {
+      StatusFrameProfile profile = device.activeProfile;
+      load += (profile != null ? profile : kFactoryFrames).getBusLoad();
+    }
+    return load;
+  }
+
+  /** @return the number of setpoint and setting writes sent to this device */
+  public synchronized long getSentCount() {
+    return sent;
+  }
+
+  /** @return the number of setpoint and setting writes skipped as duplicates */
+  public synchronized long getSuppressedCount() {
+    return suppressed;
+  }
+
+  /** Puts every device's sent and suppressed write counts on the dashboard. */
+  public static void publishCounts() {
+    // Indexed rather than for-each, which would allocate an iterator every time
+    for (int i = 0; i < devices.size(); i++) {
+      CachedSparkMax device = devices.get(i);
+      SmartDashboard.putNumber(device.sentKey, device.getSentCount());
+      SmartDashboard.putNumber(device.suppressedKey, device.getSuppressedCount());
+    }
+  }
+}
@@ -8,29 +8,39 @@
 package frc.robot.subsystems;
 
 import com.revrobotics.CANEncoder;
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.ClimberConstants;
 import frc.robot.Constants.RobotMap;
+import frc.robot.Constants.SensorConstants;
+import frc.robot.RateGroup;
 
 public class Climber extends SubsystemBase {
 
-  private final CANSparkMax telescope;
-  private final CANSparkMax winch;
+  private final CachedSparkMax telescope;
+  private final CachedSparkMax winch;
 
   private final CANEncoder telescopeEncoder;
+  private final SensorSampler sampler = SensorSampler.getInstance();
+  private final int telescopePositionChannel;
 
   public Climber() {
 
-    telescope = new CANSparkMax(RobotMap.kTelescope, MotorType.kBrushless);
-    winch = new CANSparkMax(RobotMap.kWinch, MotorType.kBrushed);
+    telescope = new CachedSparkMax(RobotMap.kTelescope, MotorType.kBrushless);
+    winch = new CachedSparkMax(RobotMap.kWinch, MotorType.kBrushed);
 
     telescope.restoreFactoryDefaults();
     winch.restoreFactoryDefaults();
 
+    // The telescope's position is only needed to climb at the end of teleop
+    telescope.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kTelescopeFrames);
+    winch.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
+
     telescope.setIdleMode(IdleMode.kBrake);
     winch.setIdleMode(IdleMode.kBrake);
 
@@ -41,6 +51,9 @@ public class Climber extends SubsystemBase {
 
     telescopeEncoder = telescope.getEncoder();
     telescopeEncoder.setPositionConversionFactor(1);
+    telescopePositionChannel =
+        sampler.addChannel(telescopeEncoder::getPosition, SensorConstants.kTelescopePeriodSeconds);
+    RateGroup.kTelemetry.add("Climber telemetry", this::updateTelemetry);
   }
 
   public void setTelescopeSpeed(double speed) {
@@ -48,9 +61,10 @@ public class Climber extends SubsystemBase {
   }
 
   public void setTelescopeRotations(double targetRotations) {
-    if (telescopeEncoder.getPosition() < targetRotations) {
+    double position = getPosition();
+    if (position < targetRotations) {
       telescope.set(0.05); // telescope up
-    } else if (telescopeEncoder.getPosition() > targetRotations) {
+    } else if (position > targetRotations) {
       telescope.set(-0.05); // telescope down
     } else {
       telescope.set(0.0);
@@ -59,17 +73,18 @@ public class Climber extends SubsystemBase {
 
   public void resetTelescopeEncoder() {
     telescopeEncoder.setPosition(0);
+    sampler.refresh(telescopePositionChannel);
   }
 
   public double getPosition() {
-    return telescopeEncoder.getPosition();
+    return sampler.get(telescopePositionChannel);
   }
 
   public void setWinchSpeed(double speed) {
     winch.set(speed);
   }
 
-  public void periodic() {
-    SmartDashboard.putNumber("Climber telescope encoder Rotations", telescopeEncoder.getPosition());
+  private void updateTelemetry() {
+    SmartDashboard.putNumber("Climber telescope encoder Rotations", getPosition());
   }
 }
@@ -0,0 +1,80 @@
+package frc.robot.subsystems;
+
+/**
+ * Differential drive odometry worked in primitives, so it can run every control loop without
+ * allocating. Integrates the same way as WPILib's {@code DifferentialDriveOdometry}: each update
+ * follows an arc from the distance the wheels travelled and the change in gyro heading.
+ *
+ * <p>Not thread safe; {@link DrivePoseTracker} only touches it under its odometry lock.
+ */
+final class DriveOdometry {
+  private double x, y, heading;
+  // Added to the gyro heading to get the pose heading, and the last readings integrated
+  private double gyroOffset;
+  private double previousHeading, previousLeft, previousRight;
+
+  /**
+   * Sets the pose. Reset the encoders along with it, since the next update measures the distance
+   * travelled from zero.
+   *
+   * @param x the x position, in meters
+   * @param y the y position, in meters
+   * @param heading the heading, in radians
+   * @param gyroHeading the gyro's current heading, in radians
+   */
+  void reset(double x, double y, double heading, double gyroHeading) {
+    this.x = x;
+    this.y = y;
+    this.heading = Math.IEEEremainder(heading, 2 * Math.PI);
+    gyroOffset = heading - gyroHeading;
+    previousHeading = this.heading;
+    previousLeft = 0;
+    previousRight = 0;
+  }
+
+  /**
+   * Moves the pose on by what the wheels and gyro have measured since the last update.
+   *
+   * @param gyroHeading the gyro's heading, in radians
+   * @param leftDistance the distance the left wheels have travelled, in meters
+   * @param rightDistance the distance the right wheels have travelled, in meters
+   */
+  void update(double gyroHeading, double leftDistance, double rightDistance) {
+    double distance = (leftDistance - previousLeft + rightDistance - previousRight) / 2;
+    double newHeading = Math.IEEEremainder(gyroHeading + gyroOffset, 2 * Math.PI);
+    double turn = Math.IEEEremainder(newHeading - previousHeading, 2 * Math.PI);
+    previousLeft = leftDistance;
+    previousRight = rightDistance;
+    previousHeading = newHeading;
+
+    // Distance along and across the old heading, for an arc of constant curvature
+    double along, across;
+    if (Math.abs(turn) < 1e-9) {
+      along = distance * (1.0 - turn * turn / 6.0);
+      across = distance * 0.5 * turn;
+    } else {
+      along = distance * Math.sin(turn) / turn;
+      across = distance * (1.0 - Math.cos(turn)) / turn;
+    }
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    x += along * cos - across * sin;
+    y += along * sin + across * cos;
+    heading = newHeading;
+  }
+
+  /** @return the x position, in meters */
+  double getX() {
+    return x;
+  }
+
+  /** @return the y position, in meters */
+  double getY() {
+    return y;
+  }
+
+  /** @return the heading, in radians */
+  double getHeading() {
+    return heading;
+  }
+}
@@ -0,0 +1,212 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.kinematics.DifferentialDriveWheelSpeeds;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.LimelightConstants;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Tracks the drivetrain's pose from its sensor samples: the odometry, a short history of it for
+ * latency compensation, and the field pose that vision fixes correct. Kept apart from the hardware
+ * so {@code LoopAllocationTest} can run the same control task on simulated samples.
+ *
+ * <p>Odometry runs in the control loop, faster than the main loop. The pose it publishes, and the
+ * sensor sample it came from, are guarded by a StampedLock so readers can take a consistent copy
+ * with an optimistic read, without blocking the control loop or allocating.
+ */
+final class DrivePoseTracker {
+  private final Consumer<DriveSample> sensors;
+  private final DriveOdometry odometry = new DriveOdometry();
+  private final Object odometryLock = new Object();
+  private final StampedLock poseLock = new StampedLock();
+  private final PoseHistory poseHistory = new PoseHistory(DriveConstants.kPoseHistorySize);
+  private double poseX, poseY, poseHeading;
+  private final DriveSample odometrySample = new DriveSample();
+  private final DriveSample publishedSample = new DriveSample();
+  private volatile double maxSampleSkew;
+
+  // Vision fixes correct the odometry's drift on the field without disturbing the odometry itself
+  private final FieldPoseFilter fieldPoseFilter =
+      new FieldPoseFilter(
+          DriveConstants.kInitialFieldPoseVariance, LimelightConstants.kVisionOutlierGate);
+  private final double[] visionOdometry = new double[4];
+
+  /**
+   * @param sensors reads the gyro and encoders into a sample, once, back to back. Only called with
+   *     the odometry lock held.
+   */
+  DrivePoseTracker(Consumer<DriveSample> sensors) {
+    this.sensors = sensors;
+    sensors.accept(odometrySample);
+    publishedSample.copyFrom(odometrySample);
+    odometry.reset(0, 0, 0, Math.toRadians(odometrySample.heading));
+  }
+
+  /** Integrates the encoders and gyro into the pose. Runs on the control loop's thread. */
+  void update() {
+    synchronized (odometryLock) {
+      DriveSample sample = odometrySample;
+      sensors.accept(sample);
+      odometry.update(Math.toRadians(sample.heading), sample.leftPosition, sample.rightPosition);
+      double x = odometry.getX();
+      double y = odometry.getY();
+      double heading = odometry.getHeading();
+      fieldPoseFilter.predict(
+          DriveConstants.kOdometryVariancePerMeter * Math.hypot(x - poseX, y - poseY),
+          DriveConstants.kOdometryHeadingVariancePerRadian
+              * Math.abs(Math.IEEEremainder(heading - poseHeading, 2 * Math.PI)));
+      publish(x, y, heading, sample);
+      poseHistory.add(sample.timestamp, x, y, heading, Math.toRadians(sample.heading));
+
+      if (Math.abs(sample.getSkew()) > maxSampleSkew) {
+        maxSampleSkew = Math.abs(sample.getSkew());
+      }
+    }
+  }
+
+  private void publish(double x, double y, double heading, DriveSample sample) {
+    long stamp = poseLock.writeLock();
+    poseX = x;
+    poseY = y;
+    poseHeading = heading;
+    publishedSample.copyFrom(sample);
+    poseLock.unlockWrite(stamp);
+  }
+
+  /**
+   * Resets the odometry to a pose, keeping the field pose where it was.
+   *
+   * @param x the x position, in meters
+   * @param y the y position, in meters
+   * @param heading the heading, in radians
+   * @param resetSensors zeroes the encoders, and the gyro if wanted, under the same lock so the
+   *     control loop never integrates the jump
+   */
+  void reset(double x, double y, double heading, Runnable resetSensors) {
+    synchronized (odometryLock) {
+      double[] fieldPose = new double[3];
+      getFieldPose(fieldPose);
+
+      resetSensors.run();
+      sensors.accept(odometrySample);
+      odometry.reset(x, y, heading, Math.toRadians(odometrySample.heading));
+      publish(odometry.getX(), odometry.getY(), odometry.getHeading(), odometrySample);
+      fieldPoseFilter.align(new double[] {x, y, heading}, fieldPose);
+      // Older poses are in the previous frame and would mislead latency compensation
+      poseHistory.clear();
+    }
+  }
+
+  /** @param sample receives the sensor sample the latest pose was computed from */
+  void getDriveSample(DriveSample sample) {
+    long stamp = poseLock.tryOptimisticRead();
+    sample.copyFrom(publishedSample);
+    if (!poseLock.validate(stamp)) {
+      stamp = poseLock.readLock();
+      try {
+        sample.copyFrom(publishedSample);
+      } finally {
+        poseLock.unlockRead(stamp);
+      }
+    }
+  }
+
+  /** Reads from the latest sensor sample. Values read together in one call are coherent. */
+  double readSample(ToDoubleFunction<DriveSample> reader) {
+    long stamp = poseLock.tryOptimisticRead();
+    double value = reader.applyAsDouble(publishedSample);
+    if (!poseLock.validate(stamp)) {
+      stamp = poseLock.readLock();
+      try {
+        value = reader.applyAsDouble(publishedSample);
+      } finally {
+        poseLock.unlockRead(stamp);
+      }
+    }
+    return value;
+  }
+
+  /** @param speeds receives both wheel speeds from the latest sensor sample */
+  void getWheelSpeeds(DifferentialDriveWheelSpeeds speeds) {
+    long stamp = poseLock.tryOptimisticRead();
+    double left = publishedSample.leftVelocity;
+    double right = publishedSample.rightVelocity;
+    if (!poseLock.validate(stamp)) {
+      stamp = poseLock.readLock();
+      try {
+        left = publishedSample.leftVelocity;
+        right = publishedSample.rightVelocity;
+      } finally {
+        poseLock.unlockRead(stamp);
+      }
+    }
+    speeds.leftMetersPerSecond = left;
+    speeds.rightMetersPerSecond = right;
+  }
+
+  /** @param pose receives the x and y position in meters and the heading in radians */
+  void getPose(double[] pose) {
+    long stamp = poseLock.tryOptimisticRead();
+    pose[0] = poseX;
+    pose[1] = poseY;
+    pose[2] = poseHeading;
+    if (!poseLock.validate(stamp)) {
+      stamp = poseLock.readLock();
+      try {
+        pose[0] = poseX;
+        pose[1] = poseY;
+        pose[2] = poseHeading;
+      } finally {
+        poseLock.unlockRead(stamp);
+      }
+    }
+  }
+
+  /** See {@link Drivetrain#getPoseAt(double, double[])}. */
+  boolean getPoseAt(double timestamp, double[] pose) {
+    return poseHistory.get(timestamp, pose);
+  }
+
+  /** @param pose receives the field pose's x and y position in meters and heading in radians */
+  void getFieldPose(double[] pose) {
+    getPose(pose);
+    fieldPoseFilter.apply(pose[0], pose[1], pose[2], pose);
+  }
+
+  /**
+   * Sets the field pose, trusting it completely.
+   *
+   * @param x the x position, in meters
+   * @param y the y position, in meters
+   * @param heading the heading, in radians
+   */
+  void resetFieldPose(double x, double y, double heading) {
+    double[] odometry = new double[3];
+    getPose(odometry);
+    fieldPoseFilter.align(odometry, new double[] {x, y, heading});
+    fieldPoseFilter.setVariance(0, 0);
+  }
+
+  /** See {@link Drivetrain#addVisionMeasurement(double, double, double, double)}. */
+  boolean addVisionMeasurement(double timestamp, double x, double y, double heading) {
+    if (!poseHistory.get(timestamp, visionOdometry) || timestamp < poseHistory.getOldestTime()) {
+      return false;
+    }
+    return fieldPoseFilter.correct(
+        visionOdometry,
+        x,
+        y,
+        heading,
+        LimelightConstants.kVisionTranslationStdDevMeters
+            * LimelightConstants.kVisionTranslationStdDevMeters,
+        LimelightConstants.kVisionHeadingStdDevRadians
+            * LimelightConstants.kVisionHeadingStdDevRadians);
+  }
+
+  /** @return the largest gap between the gyro and encoder reads of one sample, in seconds */
+  double getMaxSampleSkew() {
+    return maxSampleSkew;
+  }
+}
@@ -0,0 +1,44 @@
+package frc.robot.subsystems;
+
+/**
+ * One reading of every drivetrain sensor, taken together once per odometry update. Everything that
+ * needs more than one of these values should take them from the same sample, so they describe the
+ * same instant.
+ *
+ * <p>Samples are mutable so they can be reused without allocating; see {@link
+ * Drivetrain#getDriveSample(DriveSample)}.
+ */
+public final class DriveSample {
+  /** FPGA time the sample was taken, in seconds. */
+  public double timestamp;
+  /** FPGA times the gyro and the encoders had been read, in seconds. */
+  public double gyroTimestamp, encoderTimestamp;
+
+  /** Heading in degrees, counter-clockwise positive. */
+  public double heading;
+  /** Turn rate in degrees per second as the gyro reports it, clockwise positive. */
+  public double turnRate;
+  /** Wheel positions in meters and speeds in meters per second. */
+  public double leftPosition, rightPosition, leftVelocity, rightVelocity;
+
+  /** Copies every value from another sample into this one. */
+  public void copyFrom(DriveSample other) {
+    timestamp = other.timestamp;
+    gyroTimestamp = other.gyroTimestamp;
+    encoderTimestamp = other.encoderTimestamp;
+    heading = other.heading;
+    turnRate = other.turnRate;
+    leftPosition = other.leftPosition;
+    rightPosition = other.rightPosition;
+    leftVelocity = other.leftVelocity;
+    rightVelocity = other.rightVelocity;
+  }
+
+  /**
+   * @return how long after the gyro the encoders were read, in seconds. The encoder values can also
+   *     be up to one status frame old when they are read.
+   */
+  public double getSkew() {
+    return encoderTimestamp - gyroTimestamp;
+  }
+}
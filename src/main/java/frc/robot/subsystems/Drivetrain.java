@@ -1,32 +1,45 @@
 package frc.robot.subsystems;
 
 import com.revrobotics.CANEncoder;
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.ControlType;
 import edu.wpi.first.wpilibj.ADXRS450_Gyro;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
-import edu.wpi.first.wpilibj.geometry.Rotation2d;
-import edu.wpi.first.wpilibj.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.wpilibj.kinematics.DifferentialDriveWheelSpeeds;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.RobotMap;
+import frc.robot.RateGroup;
+import java.util.function.ToDoubleFunction;
 
 public class Drivetrain extends SubsystemBase {
 
-  private final CANSparkMax left1, left2, right1, right2;
+  private final CachedSparkMax left1, left2, right1, right2;
   private final ADXRS450_Gyro gyro;
   public final CANEncoder leftEncoder, rightEncoder;
-  public final DifferentialDriveOdometry m_odometry;
-  private double gyroOffset;
+  private final SimpleMotorFeedforward feedforward =
+      new SimpleMotorFeedforward(
+          DriveConstants.ksVolts,
+          DriveConstants.kvVoltSecondsPerMeter,
+          DriveConstants.kaVoltSecondsSquaredPerMeter);
+  private volatile double gyroOffset;
+
+  // Odometry runs in the control loop, from samples of the gyro and encoders read together
+  private final DrivePoseTracker poseTracker;
+  private final DriveSample telemetrySample = new DriveSample();
+  private final double[] telemetryPose = new double[3];
+  private volatile double leftVolts, rightVolts;
 
   public Drivetrain() {
-    left1 = new CANSparkMax(RobotMap.kDriveMotorLeft1, MotorType.kBrushless);
-    left2 = new CANSparkMax(RobotMap.kDriveMotorLeft2, MotorType.kBrushless);
-    right1 = new CANSparkMax(RobotMap.kDriveMotorRight1, MotorType.kBrushless);
-    right2 = new CANSparkMax(RobotMap.kDriveMotorRight2, MotorType.kBrushless);
+    left1 = new CachedSparkMax(RobotMap.kDriveMotorLeft1, MotorType.kBrushless);
+    left2 = new CachedSparkMax(RobotMap.kDriveMotorLeft2, MotorType.kBrushless);
+    right1 = new CachedSparkMax(RobotMap.kDriveMotorRight1, MotorType.kBrushless);
+    right2 = new CachedSparkMax(RobotMap.kDriveMotorRight2, MotorType.kBrushless);
 
     left1.restoreFactoryDefaults();
     left2.restoreFactoryDefaults();
@@ -39,12 +52,29 @@ public class Drivetrain extends SubsystemBase {
     right1.setInverted(true);
     right2.setInverted(true);
 
+    // Odometry reads the leaders' encoders; the followers only need to hear from their leaders
+    left1.setStatusFrameProfiles(
+        CANConstants.kDriveIdleFrames, CANConstants.kDriveFrames, CANConstants.kDriveFrames);
+    right1.setStatusFrameProfiles(
+        CANConstants.kDriveIdleFrames, CANConstants.kDriveFrames, CANConstants.kDriveFrames);
+    left2.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
+    right2.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
+
     left1.setSmartCurrentLimit(DriveConstants.kCurrentLimit);
     right1.setSmartCurrentLimit(DriveConstants.kCurrentLimit);
 
     left1.setOpenLoopRampRate(DriveConstants.kRampRate);
     right1.setOpenLoopRampRate(DriveConstants.kRampRate);
 
+    // Wheel speed loops run on the motor controllers, with the feedforward sent as a voltage
+    // alongside each setpoint
+    left1.getPIDController().setP(DriveConstants.kPDriveVelOnboard);
+    left1.getPIDController().setFF(0);
+    right1.getPIDController().setP(DriveConstants.kPDriveVelOnboard);
+    right1.getPIDController().setFF(0);
+
     left1.setIdleMode(IdleMode.kBrake);
     left2.setIdleMode(IdleMode.kCoast);
     right1.setIdleMode(IdleMode.kBrake);
@@ -65,21 +95,55 @@ public class Drivetrain extends SubsystemBase {
     gyroOffset = 0.0;
     resetEncoders();
     zeroHeading();
-    m_odometry = new DifferentialDriveOdometry(Rotation2d.fromDegrees(getHeading()));
+    poseTracker = new DrivePoseTracker(this::captureSample);
+
+    RateGroup.kControl.add("Odometry", poseTracker::update);
+    RateGroup.kTelemetry.add("Drivetrain telemetry", this::updateTelemetry);
+  }
+
+  private void updateTelemetry() {
+    getDriveSample(telemetrySample);
+    SmartDashboard.putNumber("Heading", telemetrySample.heading);
+    SmartDashboard.putNumber("DT Left", telemetrySample.leftPosition);
+    SmartDashboard.putNumber("DT Right", telemetrySample.rightPosition);
+    SmartDashboard.putNumber("Drive sample skew (ms)", telemetrySample.getSkew() * 1000.0);
+    SmartDashboard.putNumber("Drive sample max skew (ms)", poseTracker.getMaxSampleSkew() * 1000.0);
+    getPose(telemetryPose);
+    SmartDashboard.putNumber("Odometry X (m)", telemetryPose[0]);
+    SmartDashboard.putNumber("Odometry Y (m)", telemetryPose[1]);
+    SmartDashboard.putNumber("Odometry heading (deg)", Math.toDegrees(telemetryPose[2]));
+    SmartDashboard.putNumber("left volts", leftVolts);
+    SmartDashboard.putNumber("right volts", rightVolts);
   }
 
-  @Override
-  public void periodic() {
-    // Update the odometry in the periodic block
-    m_odometry.update(
-        Rotation2d.fromDegrees(getHeading()),
-        leftEncoder.getPosition(),
-        rightEncoder.getPosition());
+  /**
+   * Reads the gyro and encoders once, back to back, so the values are as close together in time as
+   * the hardware allows.
+   */
+  private void captureSample(DriveSample sample) {
+    sample.timestamp = Timer.getFPGATimestamp();
+    sample.heading = readHeading();
+    sample.turnRate = gyro.getRate();
+    sample.gyroTimestamp = Timer.getFPGATimestamp();
+    sample.leftPosition = leftEncoder.getPosition();
+    sample.rightPosition = rightEncoder.getPosition();
+    sample.leftVelocity = leftEncoder.getVelocity();
+    sample.rightVelocity = rightEncoder.getVelocity();
+    sample.encoderTimestamp = Timer.getFPGATimestamp();
+  }
+
+  /**
+   * Copies the sensor sample the latest pose was computed from, without allocating.
+   *
+   * @param sample receives the sample
+   */
+  public void getDriveSample(DriveSample sample) {
+    poseTracker.getDriveSample(sample);
+  }
 
-    SmartDashboard.putNumber("Heading", getHeading());
-    SmartDashboard.putNumber("DT Left", getLeftEncoder().getPosition());
-    SmartDashboard.putNumber("DT Right", getRightEncoder().getPosition());
-    SmartDashboard.putString("Odometry", m_odometry.getPoseMeters().toString());
+  /** Reads from the latest sensor sample. Values read together in one call are coherent. */
+  private double readSample(ToDoubleFunction<DriveSample> reader) {
+    return poseTracker.readSample(reader);
   }
 
   public void GTADrive(double leftTrigger, double rightTrigger, double turn) {
@@ -100,21 +164,71 @@ public class Drivetrain extends SubsystemBase {
   }
 
   /**
-   * Returns the currently-estimated pose of the robot.
+   * Copies the currently-estimated pose of the robot without allocating. The three values always
+   * come from the same odometry update.
+   *
+   * @param pose receives the x and y position in meters and the heading in radians
+   */
+  public void getPose(double[] pose) {
+    poseTracker.getPose(pose);
+  }
+
+  /**
+   * Looks up where the robot was at a past time, for compensating delayed measurements such as
+   * camera frames. Only the last {@link DriveConstants#kPoseHistorySeconds} are remembered.
+   *
+   * @param timestamp the FPGA timestamp to look up, in seconds
+   * @param pose receives the x and y position in meters, the heading in radians, and the gyro
+   *     heading in radians
+   * @return false if no poses have been recorded since the last reset
+   */
+  public boolean getPoseAt(double timestamp, double[] pose) {
+    return poseTracker.getPoseAt(timestamp, pose);
+  }
+
+  /**
+   * Copies the robot's pose on the field without allocating, combining odometry with vision fixes.
+   * Unlike {@link #getPose(double[])} this is not affected by {@link #resetOdometry(Pose2d)}.
+   *
+   * @param pose receives the x and y position in meters and the heading in radians
+   */
+  public void getFieldPose(double[] pose) {
+    poseTracker.getFieldPose(pose);
+  }
+
+  /**
+   * Sets the robot's pose on the field, e.g. from a known starting position.
    *
-   * @return The pose.
+   * @param pose The robot's field pose.
    */
-  public Pose2d getPose() {
-    return m_odometry.getPoseMeters();
+  public void resetFieldPose(Pose2d pose) {
+    poseTracker.resetFieldPose(
+        pose.getTranslation().getX(),
+        pose.getTranslation().getY(),
+        pose.getRotation().getRadians());
   }
 
   /**
-   * Returns the current wheel speeds of the robot.
+   * Blends a vision measurement of the robot's field pose into {@link #getFieldPose(double[])}.
+   * Should only be called from the main robot thread.
    *
-   * @return The current wheel speeds.
+   * @param timestamp the FPGA time the measurement was captured, in seconds
+   * @param x the measured x position, in meters
+   * @param y the measured y position, in meters
+   * @param heading the measured heading, in radians
+   * @return false if the measurement was rejected as an outlier or is too old to use
    */
-  public DifferentialDriveWheelSpeeds getWheelSpeeds() {
-    return new DifferentialDriveWheelSpeeds(leftEncoder.getVelocity(), rightEncoder.getVelocity());
+  public boolean addVisionMeasurement(double timestamp, double x, double y, double heading) {
+    return poseTracker.addVisionMeasurement(timestamp, x, y, heading);
+  }
+
+  /**
+   * Copies the current wheel speeds without allocating. Both come from the same sensor sample.
+   *
+   * @param speeds receives the wheel speeds
+   */
+  public void getWheelSpeeds(DifferentialDriveWheelSpeeds speeds) {
+    poseTracker.getWheelSpeeds(speeds);
   }
 
   /**
@@ -123,8 +237,30 @@ public class Drivetrain extends SubsystemBase {
    * @param pose The pose to which to set the odometry.
    */
   public void resetOdometry(Pose2d pose) {
-    resetEncoders();
-    m_odometry.resetPosition(pose, Rotation2d.fromDegrees(getHeading()));
+    resetOdometry(pose, false);
+  }
+
+  /**
+   * Zeroes the gyro and resets the odometry to the specified pose in one step, so the control loop
+   * never integrates the heading jump.
+   *
+   * @param pose The pose to which to set the odometry.
+   */
+  public void resetHeadingAndOdometry(Pose2d pose) {
+    resetOdometry(pose, true);
+  }
+
+  private void resetOdometry(Pose2d pose, boolean zeroHeading) {
+    poseTracker.reset(
+        pose.getTranslation().getX(),
+        pose.getTranslation().getY(),
+        pose.getRotation().getRadians(),
+        () -> {
+          if (zeroHeading) {
+            zeroHeading();
+          }
+          resetEncoders();
+        });
   }
 
   /**
@@ -134,10 +270,28 @@ public class Drivetrain extends SubsystemBase {
    * @param rightVolts the commanded right output
    */
   public void tankDriveVolts(double leftVolts, double rightVolts) {
-    SmartDashboard.putNumber("left volts", leftVolts);
-    SmartDashboard.putNumber("right volts", rightVolts);
-    left1.set(leftVolts / 12.6);
-    right1.set(rightVolts / 12.6);
+    this.leftVolts = leftVolts;
+    this.rightVolts = rightVolts;
+    // Scales by the measured battery voltage, so the same volts reach the motors as it sags
+    left1.setVoltage(leftVolts);
+    right1.setVoltage(rightVolts);
+  }
+
+  /**
+   * Drives each side at a wheel speed, using the velocity loops on the motor controllers with the
+   * characterized feedforward.
+   *
+   * @param leftSpeed the left wheel speed, in meters per second
+   * @param rightSpeed the right wheel speed, in meters per second
+   * @param leftAcceleration the left wheel acceleration, in meters per second squared
+   * @param rightAcceleration the right wheel acceleration, in meters per second squared
+   */
+  public void tankDriveVelocity(
+      double leftSpeed, double rightSpeed, double leftAcceleration, double rightAcceleration) {
+    left1.setReference(
+        leftSpeed, ControlType.kVelocity, 0, feedforward.calculate(leftSpeed, leftAcceleration));
+    right1.setReference(
+        rightSpeed, ControlType.kVelocity, 0, feedforward.calculate(rightSpeed, rightAcceleration));
   }
 
   /** Resets the drive encoders to currently read a position of 0. */
@@ -152,7 +306,17 @@ public class Drivetrain extends SubsystemBase {
    * @return the average of the two encoder readings
    */
   public double getAverageEncoderDistance() {
-    return (leftEncoder.getPosition() + rightEncoder.getPosition()) / 2.0;
+    return readSample(sample -> (sample.leftPosition + sample.rightPosition) / 2.0);
+  }
+
+  /** @return the left wheel speed, in meters per second */
+  public double getLeftVelocity() {
+    return readSample(sample -> sample.leftVelocity);
+  }
+
+  /** @return the right wheel speed, in meters per second */
+  public double getRightVelocity() {
+    return readSample(sample -> sample.rightVelocity);
   }
 
   /**
@@ -188,6 +352,15 @@ public class Drivetrain extends SubsystemBase {
    * @return the robot's heading in degrees, from 180 to 180
    */
   public double getHeading() {
+    return readSample(sample -> sample.heading);
+  }
+
+  /** @return the FPGA time {@link #getHeading()} was read from the gyro, in seconds */
+  public double getHeadingTimestamp() {
+    return readSample(sample -> sample.gyroTimestamp);
+  }
+
+  private double readHeading() {
     return Math.IEEEremainder(gyro.getAngle() + gyroOffset, 360) * -1;
   }
 
@@ -198,6 +371,6 @@ public class Drivetrain extends SubsystemBase {
    */
   public double getTurnRate() {
     // return 0;
-    return gyro.getRate();
+    return readSample(sample -> sample.turnRate);
   }
 }
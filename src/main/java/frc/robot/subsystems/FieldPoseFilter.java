@@ -0,0 +1,133 @@
+package frc.robot.subsystems;
+
+/**
+ * Estimates where the odometry frame sits on the field by blending odometry with vision fixes. The
+ * estimate is a rigid transform applied on top of the odometry pose, so odometry keeps its smooth
+ * short-term motion while vision removes its long-term drift.
+ *
+ * <p>Each of x, y and heading is treated as an independent Kalman filter: odometry adds variance as
+ * the robot moves, and each vision fix is blended in with a gain of variance / (variance + vision
+ * variance). Fixes further than {@link #gate} standard deviations from the estimate are rejected.
+ */
+final class FieldPoseFilter {
+  private final double gate;
+
+  // Transform from the odometry frame to the field frame
+  private double tx, ty, tHeading;
+  private final double[] variance = new double[3];
+
+  /**
+   * @param initialVariance the variance of x (m^2), y (m^2) and heading (rad^2) before any fix
+   * @param gate how many standard deviations a fix may disagree by before it is rejected
+   */
+  FieldPoseFilter(double initialVariance, double gate) {
+    this.gate = gate;
+    variance[0] = initialVariance;
+    variance[1] = initialVariance;
+    variance[2] = initialVariance;
+  }
+
+  /**
+   * Grows the uncertainty to account for odometry drift since the last update.
+   *
+   * @param translationVariance variance added to x and y, in square meters
+   * @param headingVariance variance added to the heading, in square radians
+   */
+  synchronized void predict(double translationVariance, double headingVariance) {
+    variance[0] += translationVariance;
+    variance[1] += translationVariance;
+    variance[2] += headingVariance;
+  }
+
+  /**
+   * Converts an odometry pose into a field pose.
+   *
+   * @param x the odometry x position, in meters
+   * @param y the odometry y position, in meters
+   * @param heading the odometry heading, in radians
+   * @param pose receives the field x and y position in meters and heading in radians
+   */
+  synchronized void apply(double x, double y, double heading, double[] pose) {
+    double cos = Math.cos(tHeading);
+    double sin = Math.sin(tHeading);
+    pose[0] = tx + cos * x - sin * y;
+    pose[1] = ty + sin * x + cos * y;
+    pose[2] = Math.IEEEremainder(tHeading + heading, 2 * Math.PI);
+  }
+
+  /**
+   * Sets the transform so that the given odometry pose maps onto the given field pose.
+   *
+   * @param odometry the odometry x, y and heading
+   * @param field the field x, y and heading
+   */
+  synchronized void align(double[] odometry, double[] field) {
+    tHeading = field[2] - odometry[2];
+    double cos = Math.cos(tHeading);
+    double sin = Math.sin(tHeading);
+    tx = field[0] - (cos * odometry[0] - sin * odometry[1]);
+    ty = field[1] - (sin * odometry[0] + cos * odometry[1]);
+  }
+
+  /** Resets the uncertainty, e.g. when the field pose is set by hand. */
+  synchronized void setVariance(double translationVariance, double headingVariance) {
+    variance[0] = translationVariance;
+    variance[1] = translationVariance;
+    variance[2] = headingVariance;
+  }
+
+  /**
+   * Blends in a vision fix.
+   *
+   * @param odometry the odometry x, y and heading when the fix was captured; overwritten
+   * @param x the measured field x position, in meters
+   * @param y the measured field y position, in meters
+   * @param heading the measured field heading, in radians
+   * @param translationVariance the variance of the measured position, in square meters
+   * @param headingVariance the variance of the measured heading, in square radians
+   * @return false if the fix was rejected as an outlier
+   */
+  synchronized boolean correct(
+      double[] odometry,
+      double x,
+      double y,
+      double heading,
+      double translationVariance,
+      double headingVariance) {
+    double ox = odometry[0];
+    double oy = odometry[1];
+    double oHeading = odometry[2];
+    apply(ox, oy, oHeading, odometry);
+
+    double errorX = x - odometry[0];
+    double errorY = y - odometry[1];
+    double errorHeading = Math.IEEEremainder(heading - odometry[2], 2 * Math.PI);
+    if (isOutlier(errorX, variance[0] + translationVariance)
+        || isOutlier(errorY, variance[1] + translationVariance)
+        || isOutlier(errorHeading, variance[2] + headingVariance)) {
+      return false;
+    }
+
+    double gainX = variance[0] / (variance[0] + translationVariance);
+    double gainY = variance[1] / (variance[1] + translationVariance);
+    double gainHeading = variance[2] / (variance[2] + headingVariance);
+    variance[0] *= 1 - gainX;
+    variance[1] *= 1 - gainY;
+    variance[2] *= 1 - gainHeading;
+
+    // Move the transform so the pose at capture time lands on the blended estimate
+    double fieldX = odometry[0] + gainX * errorX;
+    double fieldY = odometry[1] + gainY * errorY;
+    double fieldHeading = odometry[2] + gainHeading * errorHeading;
+    tHeading = fieldHeading - oHeading;
+    double cos = Math.cos(tHeading);
+    double sin = Math.sin(tHeading);
+    tx = fieldX - (cos * ox - sin * oy);
+    ty = fieldY - (sin * ox + cos * oy);
+    return true;
+  }
+
+  private boolean isOutlier(double error, double variance) {
+    return error * error > gate * gate * variance;
+  }
+}
@@ -1,25 +1,31 @@
 package frc.robot.subsystems;
 
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.HopperConstants;
 import frc.robot.Constants.RobotMap;
 
 public class Hopper extends SubsystemBase {
 
-  private final CANSparkMax leftBelt;
-  private final CANSparkMax rightBelt;
+  private final CachedSparkMax leftBelt;
+  private final CachedSparkMax rightBelt;
 
   public Hopper() {
 
-    leftBelt = new CANSparkMax(RobotMap.kLeftBelt, MotorType.kBrushed);
-    rightBelt = new CANSparkMax(RobotMap.kRightBelt, MotorType.kBrushed);
+    leftBelt = new CachedSparkMax(RobotMap.kLeftBelt, MotorType.kBrushed);
+    rightBelt = new CachedSparkMax(RobotMap.kRightBelt, MotorType.kBrushed);
 
     leftBelt.restoreFactoryDefaults();
     rightBelt.restoreFactoryDefaults();
 
+    // Nothing reads back from the belts
+    leftBelt.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
+    rightBelt.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
+
     leftBelt.setIdleMode(IdleMode.kBrake);
     rightBelt.setIdleMode(IdleMode.kBrake);
 
@@ -31,8 +37,4 @@ public class Hopper extends SubsystemBase {
     leftBelt.set(leftSpeed);
     rightBelt.set(rightSpeed);
   }
-
-  public boolean isFeeding() {
-    return leftBelt.get() != 0;
-  }
 }
@@ -7,14 +7,15 @@
 
 package frc.robot.subsystems;
 
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.IntakeConstants;
 import frc.robot.Constants.RobotMap;
+import frc.robot.RateGroup;
 
 public class Intake extends SubsystemBase {
   public enum IntakeState {
@@ -28,20 +29,24 @@ public class Intake extends SubsystemBase {
     }
   }
 
-  private CANSparkMax rollers;
+  private CachedSparkMax rollers;
   private DoubleSolenoid intakeDoubleSolenoid;
   private IntakeState intakeState;
 
   public Intake() {
     intakeState = null;
-    rollers = new CANSparkMax(RobotMap.kIntakeMotor, MotorType.kBrushed);
+    rollers = new CachedSparkMax(RobotMap.kIntakeMotor, MotorType.kBrushed);
     intakeDoubleSolenoid =
         new DoubleSolenoid(RobotMap.kIntakeDoubleSolenoidFront, RobotMap.kIntakeDoubleSolenoidBack);
 
     rollers.restoreFactoryDefaults();
+    rollers.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
 
     rollers.setIdleMode(IdleMode.kBrake);
     rollers.setSmartCurrentLimit(IntakeConstants.kIntakeCurrentLimit);
+
+    RateGroup.kCommands.add("Intake", this::update);
   }
 
   public void setIntakeMotor(double speed) {
@@ -53,8 +58,7 @@ public class Intake extends SubsystemBase {
     intakeDoubleSolenoid.set(state.state);
   }
 
-  @Override
-  public void periodic() {
+  private void update() {
     if (intakeState == null) {
       setIntakeState(IntakeState.RETRACTED);
     }
@@ -1,19 +1,76 @@
 package frc.robot.subsystems;
 
+import edu.wpi.first.networktables.EntryListenerFlags;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 
 public class Limelight implements Subsystem {
+  private final NetworkTable table;
+  private final NetworkTableEntry tv, tx, ty, ta, ts, tl, camtran;
+
+  private static final double[] kNoCamtran = new double[0];
+
+  private volatile LimelightFrame latestFrame = LimelightFrame.kEmpty;
+  private long frameCount;
+
+  public Limelight() {
+    table = NetworkTableInstance.getDefault().getTable("limelight");
+    tv = table.getEntry("tv");
+    tx = table.getEntry("tx");
+    ty = table.getEntry("ty");
+    ta = table.getEntry("ta");
+    ts = table.getEntry("ts");
+    tl = table.getEntry("tl");
+    camtran = table.getEntry("camtran");
+
+    // NetworkTables only sends a value when it changes, and sends one image's values in no
+    // particular order, so any of them changing may be the next frame. Snapshot them all each
+    // time, and drop snapshots that match the last frame.
+    for (NetworkTableEntry entry : new NetworkTableEntry[] {tv, tx, ty, ta, ts, tl, camtran}) {
+      entry.addListener(
+          notification -> receiveFrame(),
+          EntryListenerFlags.kNew | EntryListenerFlags.kUpdate | EntryListenerFlags.kImmediate);
+    }
+  }
 
-  private NetworkTable getTable() {
-    return NetworkTableInstance.getDefault().getTable("limelight");
+  private synchronized void receiveFrame() {
+    LimelightFrame frame =
+        new LimelightFrame(
+            frameCount + 1,
+            Timer.getFPGATimestamp(),
+            tv.getDouble(0) == 1,
+            tx.getDouble(0),
+            ty.getDouble(0),
+            ta.getDouble(0),
+            ts.getDouble(0),
+            tl.getDouble(0),
+            camtran.getDoubleArray(kNoCamtran));
+    if (!frame.hasSameValues(latestFrame)) {
+      frameCount++;
+      latestFrame = frame;
+    }
+  }
+
+  /**
+   * Returns the most recent camera frame, a snapshot of the targeting values taken whenever one of
+   * them changes. NetworkTables doesn't deliver one image's values together, so for a moment a
+   * frame can mix values from consecutive images until the rest arrive. Read the frame once per
+   * loop rather than calling the individual getters, so at least the values used together come from
+   * one snapshot. A camera that reports exactly the same values twice sends nothing, so its latest
+   * frame ages until something changes.
+   *
+   * @return the latest frame, or {@link LimelightFrame#kEmpty} before the first one arrives
+   */
+  public LimelightFrame getLatestFrame() {
+    return latestFrame;
   }
 
   private NetworkTableEntry getEntry(String entryName) {
-    return getTable().getEntry(entryName);
+    return table.getEntry(entryName);
   }
 
   private double getValue(String entryName) {
@@ -26,36 +83,36 @@ public class Limelight implements Subsystem {
 
   /** @return true if the Limelight has any valid targets */
   public boolean hasValidTargets() {
-    return getValue("tv") == 1;
+    return latestFrame.hasTarget;
   }
 
   public double getTargetValue() {
-    return getValue("tv");
+    return latestFrame.hasTarget ? 1 : 0;
   }
 
   /** @return horizontal offset from crosshair to target (-27 degrees to 27 degrees) */
   public double getHorizontalOffset() {
-    return getValue("tx");
+    return latestFrame.horizontalOffset;
   }
 
   /** @return vertical offset from crosshair to target (-20.5 degrees to 20.5 degrees) */
   public double getVerticalOffset() {
-    return getValue("ty");
+    return latestFrame.verticalOffset;
   }
 
   /** @return target area (0% of image to 100% of image) */
   public double getTargetArea() {
-    return getValue("ta");
+    return latestFrame.targetArea;
   }
 
   /** @return skew or rotation (-90 degrees to 0 degrees) */
   public double getSkewOrRotation() {
-    return getValue("ts");
+    return latestFrame.skew;
   }
 
   /** @return pipeline's latency contribution (ms); add 11ms for image capture */
   public double getLatency() {
-    return getValue("tl");
+    return latestFrame.latency;
   }
 
   /** @return sidelength of shortest side of the fitted bounding box (pixels) */
@@ -84,11 +141,12 @@ public class Limelight implements Subsystem {
   }
 
   /**
-   * @return Results of a 3D position solution, 6 numbers: Translation (x,y,y)
-   *     Rotation(pitch,yaw,roll)
+   * @param index 0-2 for translation (x, y, z), 3-5 for rotation (pitch, yaw, roll)
+   * @return one value of the latest frame's 3D position solution; check {@link
+   *     LimelightFrame#hasCamtran()} first
    */
-  public Double[] getCamtran() {
-    return getEntry("camtran").getDoubleArray(new Double[] {});
+  public double getCamtran(int index) {
+    return latestFrame.getCamtran(index);
   }
 
   public enum LedMode {
@@ -0,0 +1,99 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants.LimelightConstants;
+import java.util.Arrays;
+
+/**
+ * A snapshot of everything the Limelight was reporting when a value last changed. Frames are
+ * immutable and replaced as a whole, so values read from one frame were all read at once; see
+ * {@link Limelight#getLatestFrame()} for how closely they match one image.
+ */
+public final class LimelightFrame {
+  /** The frame published before anything has been received from the camera. */
+  public static final LimelightFrame kEmpty =
+      new LimelightFrame(0, Double.NEGATIVE_INFINITY, false, 0, 0, 0, 0, 0, new double[0]);
+
+  /** Counts up by one for each new frame, so repeated reads of one frame can be spotted. */
+  public final long sequence;
+  /** FPGA time the frame was received on the robot, in seconds. */
+  public final double timestamp;
+
+  public final boolean hasTarget;
+  public final double horizontalOffset, verticalOffset, targetArea, skew;
+  /** Pipeline latency in milliseconds, not including image capture. */
+  public final double latency;
+
+  private final double[] camtran;
+
+  LimelightFrame(
+      long sequence,
+      double timestamp,
+      boolean hasTarget,
+      double horizontalOffset,
+      double verticalOffset,
+      double targetArea,
+      double skew,
+      double latency,
+      double[] camtran) {
+    this.sequence = sequence;
+    this.timestamp = timestamp;
+    this.hasTarget = hasTarget;
+    this.horizontalOffset = horizontalOffset;
+    this.verticalOffset = verticalOffset;
+    this.targetArea = targetArea;
+    this.skew = skew;
+    this.latency = latency;
+    this.camtran = camtran;
+  }
+
+  /** @return the FPGA time the image was captured, in seconds */
+  public double getCaptureTimestamp() {
+    return timestamp - (latency + LimelightConstants.kCaptureLatencyMs) / 1000.0;
+  }
+
+  /**
+   * @param now the current FPGA time, in seconds
+   * @return how long ago the frame was received, in seconds
+   */
+  public double getAge(double now) {
+    return now - timestamp;
+  }
+
+  /**
+   * Estimates the distance to the target from its vertical offset and the camera's mounting height
+   * and pitch.
+   *
+   * @return the horizontal distance from the camera to the target, in meters
+   */
+  public double getDistanceToTarget() {
+    return (LimelightConstants.kTargetHeightMeters - LimelightConstants.kCameraHeightMeters)
+        / Math.tan(Math.toRadians(LimelightConstants.kCameraPitchDegrees + verticalOffset));
+  }
+
+  /**
+   * @param other another frame
+   * @return true if every reported value matches, regardless of when the frames were received
+   */
+  boolean hasSameValues(LimelightFrame other) {
+    return hasTarget == other.hasTarget
+        && horizontalOffset == other.horizontalOffset
+        && verticalOffset == other.verticalOffset
+        && targetArea == other.targetArea
+        && skew == other.skew
+        && latency == other.latency
+        && Arrays.equals(camtran, other.camtran);
+  }
+
+  /** @return true if the frame carries a 3D pose solution */
+  public boolean hasCamtran() {
+    return camtran.length >= 6;
+  }
+
+  /**
+   * @param index 0-2 for translation (x, y, z), 3-5 for rotation (pitch, yaw, roll)
+   * @return one value of the 3D pose solution
+   */
+  public double getCamtran(int index) {
+    return camtran[index];
+  }
+}
@@ -0,0 +1,94 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.util.Units;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.LimelightConstants;
+import frc.robot.RateGroup;
+import java.util.function.Supplier;
+
+/**
+ * Feeds the Limelight's 3D pose solution (camtran) into the drivetrain's field pose estimate. Each
+ * fix is stamped with its capture time, so the drivetrain can compare it against where odometry had
+ * the robot when the frame was taken.
+ *
+ * <p>The field frame has its origin at the vision target, with x pointing out of the target into
+ * the field.
+ */
+public class PoseEstimator extends SubsystemBase {
+  /** Takes a vision measurement of the field pose, returning false if it was rejected. */
+  interface MeasurementSink {
+    boolean addVisionMeasurement(double timestamp, double x, double y, double heading);
+  }
+
+  /** Turns each new Limelight frame into a field pose fix. Runs on the main loop. */
+  static final class FixTask implements Runnable {
+    private final Supplier<LimelightFrame> frames;
+    private final MeasurementSink sink;
+    private long lastSequence;
+    private int accepted, rejected;
+
+    /**
+     * @param frames supplies the latest camera frame
+     * @param sink receives the fixes, normally {@link Drivetrain#addVisionMeasurement}
+     */
+    FixTask(Supplier<LimelightFrame> frames, MeasurementSink sink) {
+      this.frames = frames;
+      this.sink = sink;
+    }
+
+    @Override
+    public void run() {
+      LimelightFrame frame = frames.get();
+      if (frame.sequence == lastSequence || !frame.hasTarget || !frame.hasCamtran()) {
+        return; // Already used this frame, or it has no solution
+      }
+      lastSequence = frame.sequence;
+
+      // Limelight reports the camera in the target's space: x to the right as seen from the
+      // camera, z into the target, and yaw about the downward axis
+      double cameraX = -Units.inchesToMeters(frame.getCamtran(2));
+      double cameraY = Units.inchesToMeters(frame.getCamtran(0));
+      double cameraHeading = Math.PI - Math.toRadians(frame.getCamtran(4));
+
+      // Work back from the camera to the center of the robot
+      double heading = cameraHeading - LimelightConstants.kCameraYawRadians;
+      double cos = Math.cos(heading);
+      double sin = Math.sin(heading);
+      double x =
+          cameraX
+              - (cos * LimelightConstants.kCameraForwardMeters
+                  - sin * LimelightConstants.kCameraLeftMeters);
+      double y =
+          cameraY
+              - (sin * LimelightConstants.kCameraForwardMeters
+                  + cos * LimelightConstants.kCameraLeftMeters);
+
+      if (sink.addVisionMeasurement(frame.getCaptureTimestamp(), x, y, heading)) {
+        accepted++;
+      } else {
+        rejected++;
+      }
+    }
+  }
+
+  private final Drivetrain m_drivetrain;
+  private final FixTask fixTask;
+  private final double[] telemetryPose = new double[3];
+
+  public PoseEstimator(Drivetrain drivetrain, Limelight limelight) {
+    m_drivetrain = drivetrain;
+    fixTask = new FixTask(limelight::getLatestFrame, drivetrain::addVisionMeasurement);
+    RateGroup.kCommands.add("Pose estimator", fixTask);
+    RateGroup.kTelemetry.add("Pose estimator telemetry", this::updateTelemetry);
+  }
+
+  private void updateTelemetry() {
+    m_drivetrain.getFieldPose(telemetryPose);
+    SmartDashboard.putNumber("Field pose X (m)", telemetryPose[0]);
+    SmartDashboard.putNumber("Field pose Y (m)", telemetryPose[1]);
+    SmartDashboard.putNumber("Field pose heading (deg)", Math.toDegrees(telemetryPose[2]));
+    SmartDashboard.putNumber("Vision fixes accepted", fixTask.accepted);
+    SmartDashboard.putNumber("Vision fixes rejected", fixTask.rejected);
+  }
+}
@@ -0,0 +1,121 @@
+package frc.robot.subsystems;
+
+/**
+ * A fixed-size ring buffer of timestamped robot poses, used to look up where the robot was when a
+ * delayed measurement (such as a camera frame) was taken. Entries are stored in primitive arrays so
+ * that recording one allocates nothing.
+ *
+ * <p>Timestamps must be added in increasing order. The buffer is safe to write from one thread
+ * while others read it.
+ */
+public final class PoseHistory {
+  private final double[] times, xs, ys, headings, gyroHeadings;
+  private int head; // index of the next entry to write
+  private int size;
+
+  /** @param capacity the number of poses to remember */
+  public PoseHistory(int capacity) {
+    times = new double[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+    headings = new double[capacity];
+    gyroHeadings = new double[capacity];
+  }
+
+  /**
+   * Records a pose, overwriting the oldest one once the buffer is full.
+   *
+   * @param time the time the pose was measured, in seconds
+   * @param x the x position, in meters
+   * @param y the y position, in meters
+   * @param heading the odometry heading, in radians
+   * @param gyroHeading the raw gyro heading, in radians
+   */
+  public synchronized void add(
+      double time, double x, double y, double heading, double gyroHeading) {
+    times[head] = time;
+    xs[head] = x;
+    ys[head] = y;
+    headings[head] = heading;
+    gyroHeadings[head] = gyroHeading;
+    head = (head + 1) % times.length;
+    if (size < times.length) {
+      size++;
+    }
+  }
+
+  /** Forgets every recorded pose, e.g. after the odometry is reset to a new frame. */
+  public synchronized void clear() {
+    size = 0;
+  }
+
+  /** @return the time of the oldest recorded pose, or NaN if there are none */
+  public synchronized double getOldestTime() {
+    return size == 0 ? Double.NaN : times[index(0)];
+  }
+
+  /** @return the time of the newest recorded pose, or NaN if there are none */
+  public synchronized double getNewestTime() {
+    return size == 0 ? Double.NaN : times[index(size - 1)];
+  }
+
+  /**
+   * Finds the robot's pose at the given time by interpolating between the two recorded poses on
+   * either side of it. Times outside the recorded range are clamped to the oldest or newest pose.
+   *
+   * @param time the time to look up, in seconds
+   * @param pose receives the x and y position in meters, the odometry heading in radians, and the
+   *     gyro heading in radians
+   * @return false if there are no recorded poses, in which case pose is left untouched
+   */
+  public synchronized boolean get(double time, double[] pose) {
+    if (size == 0) {
+      return false;
+    }
+
+    // Binary search for the first entry at or after the requested time
+    int low = 0;
+    int high = size - 1;
+    if (time >= times[index(high)]) {
+      copy(index(high), pose);
+      return true;
+    }
+    if (time <= times[index(low)]) {
+      copy(index(low), pose);
+      return true;
+    }
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (times[index(mid)] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    int after = index(low);
+    int before = index(low - 1);
+    double span = times[after] - times[before];
+    double t = span > 0 ? (time - times[before]) / span : 1.0;
+    pose[0] = xs[before] + (xs[after] - xs[before]) * t;
+    pose[1] = ys[before] + (ys[after] - ys[before]) * t;
+    pose[2] = interpolateAngle(headings[before], headings[after], t);
+    pose[3] = interpolateAngle(gyroHeadings[before], gyroHeadings[after], t);
+    return true;
+  }
+
+  private int index(int age) {
+    return (head - size + age + times.length) % times.length;
+  }
+
+  private void copy(int i, double[] pose) {
+    pose[0] = xs[i];
+    pose[1] = ys[i];
+    pose[2] = headings[i];
+    pose[3] = gyroHeadings[i];
+  }
+
+  private static double interpolateAngle(double from, double to, double t) {
+    return Math.IEEEremainder(from + Math.IEEEremainder(to - from, 2 * Math.PI) * t, 2 * Math.PI);
+  }
+}
@@ -0,0 +1,132 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.SensorConstants;
+import frc.robot.RateGroup;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Reads sensors on the control loop's thread, so the main loop never waits on a CAN or SPI read.
+ * Each channel is polled at its own period into a back buffer, which is then copied to the front
+ * buffer that readers see. Reads of the front buffer take a few nanoseconds and never block the
+ * sampler.
+ *
+ * <p>Every value carries the time it was read, from {@link RateGroup#getTime()}, so callers can
+ * tell how stale it is.
+ */
+public final class SensorSampler {
+  private static SensorSampler instance;
+
+  private final DoubleSupplier[] sources = new DoubleSupplier[SensorConstants.kMaxChannels];
+  private final double[] periods = new double[SensorConstants.kMaxChannels];
+  private final double[] nextSampleTimes = new double[SensorConstants.kMaxChannels];
+  private int channelCount;
+
+  // Written only by the sampler, then copied to the front buffer under the lock
+  private final double[] backValues = new double[SensorConstants.kMaxChannels];
+  private final double[] backTimestamps = new double[SensorConstants.kMaxChannels];
+  private final StampedLock lock = new StampedLock();
+  private final double[] frontValues = new double[SensorConstants.kMaxChannels];
+  private final double[] frontTimestamps = new double[SensorConstants.kMaxChannels];
+
+  private SensorSampler() {
+    RateGroup.kControl.add("Sensor sampler", this::sample);
+  }
+
+  /** @return the robot's sensor sampler, which joins the control loop when first used */
+  public static synchronized SensorSampler getInstance() {
+    if (instance == null) {
+      instance = new SensorSampler();
+    }
+    return instance;
+  }
+
+  /**
+   * Starts polling a sensor. It is read once straight away, so the channel has a value as soon as
+   * this returns.
+   *
+   * @param source reads the sensor
+   * @param periodSeconds how often to read it. Channels are read on the control loop's ticks, so
+   *     this is best a multiple of {@link LoopConstants#kControlPeriodSeconds}
+   * @return the channel to read the sensor's values from
+   */
+  public synchronized int addChannel(DoubleSupplier source, double periodSeconds) {
+    if (channelCount == SensorConstants.kMaxChannels) {
+      throw new IllegalStateException("Too many sensor channels");
+    }
+    int channel = channelCount++;
+    sources[channel] = source;
+    periods[channel] = periodSeconds;
+    refresh(channel);
+    return channel;
+  }
+
+  /**
+   * Reads a channel's sensor now instead of waiting for its next sample, e.g. after resetting it.
+   *
+   * @param channel the channel to read
+   */
+  public synchronized void refresh(int channel) {
+    double now = RateGroup.getTime();
+    backValues[channel] = sources[channel].getAsDouble();
+    backTimestamps[channel] = now;
+    nextSampleTimes[channel] = now + periods[channel];
+    publish();
+  }
+
+  /** Reads every channel that is due. Runs on the control loop's thread. */
+  private synchronized void sample() {
+    double start = RateGroup.getTime();
+    boolean sampled = false;
+    for (int i = 0; i < channelCount; i++) {
+      // Allow for notifier jitter, so a channel doesn't slip a whole tick late
+      if (start >= nextSampleTimes[i] - LoopConstants.kControlPeriodSeconds / 2) {
+        backValues[i] = sources[i].getAsDouble();
+        backTimestamps[i] = RateGroup.getTime();
+        nextSampleTimes[i] = Math.max(nextSampleTimes[i] + periods[i], start);
+        sampled = true;
+      }
+    }
+    if (sampled) {
+      publish();
+    }
+  }
+
+  private void publish() {
+    long stamp = lock.writeLock();
+    System.arraycopy(backValues, 0, frontValues, 0, channelCount);
+    System.arraycopy(backTimestamps, 0, frontTimestamps, 0, channelCount);
+    lock.unlockWrite(stamp);
+  }
+
+  /**
+   * @param channel the channel to read
+   * @return the channel's latest value
+   */
+  public double get(int channel) {
+    long stamp = lock.tryOptimisticRead();
+    double value = frontValues[channel];
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      value = frontValues[channel];
+      lock.unlockRead(stamp);
+    }
+    return value;
+  }
+
+  /**
+   * @param channel the channel to read
+   * @return the FPGA time the channel's latest value was read, in seconds
+   */
+  public double getTimestamp(int channel) {
+    long stamp = lock.tryOptimisticRead();
+    double timestamp = frontTimestamps[channel];
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      timestamp = frontTimestamps[channel];
+      lock.unlockRead(stamp);
+    }
+    return timestamp;
+  }
+}
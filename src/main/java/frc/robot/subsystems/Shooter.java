@@ -1,19 +1,25 @@
 package frc.robot.subsystems;
 
 import com.revrobotics.CANEncoder;
-import com.revrobotics.CANPIDController;
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.revrobotics.ControlType;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.RobotMap;
+import frc.robot.Constants.SensorConstants;
 import frc.robot.Constants.ShooterConstants;
-import frc.robot.Robot;
+import frc.robot.RateGroup;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
 
 public class Shooter extends SubsystemBase {
   public enum HoodState {
@@ -27,20 +33,30 @@ public class Shooter extends SubsystemBase {
     }
   }
 
-  private CANSparkMax flywheelLeft, flywheelRight, accelerator;
+  private CachedSparkMax flywheelLeft, flywheelRight, accelerator;
   private CANEncoder encoder;
-  private int shotsFired;
-  private Timer currentMonitorTimer;
+  private final SimpleMotorFeedforward flywheelFeedforward =
+      new SimpleMotorFeedforward(ShooterConstants.kFlywheelkS, ShooterConstants.kFlywheelkV);
+  private final SimpleMotorFeedforward acceleratorFeedforward =
+      new SimpleMotorFeedforward(ShooterConstants.kAcceleratorkS, ShooterConstants.kAcceleratorkV);
+  private volatile double flywheelSetpoint;
+  private double acceleratorSetpoint;
+  private double lastHoodChangeTime = Double.NEGATIVE_INFINITY;
+
+  private final SensorSampler sampler = SensorSampler.getInstance();
+  private final int flywheelVelocityChannel, flywheelCurrentChannel, acceleratorVelocityChannel;
+
+  // Standby keeps the flywheel spinning between shots so the next one starts part way up
+  private boolean standbyEnabled;
+  private boolean loadShedding;
+  private final ShotDetector shotDetector = new ShotDetector(ShooterConstants.kShotTraceSize);
   private DoubleSolenoid hoodPiston;
   public HoodState hoodState;
 
   public Shooter() {
-    shotsFired = 0;
-    currentMonitorTimer = new Timer();
-
-    flywheelLeft = new CANSparkMax(RobotMap.kFlywheelMotorLeft, MotorType.kBrushless);
-    flywheelRight = new CANSparkMax(RobotMap.kFlywheelMotorRight, MotorType.kBrushless);
-    accelerator = new CANSparkMax(RobotMap.kAcceleratorMotor, MotorType.kBrushless);
+    flywheelLeft = new CachedSparkMax(RobotMap.kFlywheelMotorLeft, MotorType.kBrushless);
+    flywheelRight = new CachedSparkMax(RobotMap.kFlywheelMotorRight, MotorType.kBrushless);
+    accelerator = new CachedSparkMax(RobotMap.kAcceleratorMotor, MotorType.kBrushless);
 
     hoodPiston =
         new DoubleSolenoid(RobotMap.kHoodDoubleSolenoidFront, RobotMap.kHoodDoubleSolenoidBack);
@@ -79,109 +95,239 @@ public class Shooter extends SubsystemBase {
     SmartDashboard.putNumber("Shooter setpoint (RPM)", 0);
     SmartDashboard.putNumber("Shooter accelerator RPM", 0);
 
+    // Both wheels run velocity loops on their controllers, with the feedforward sent as a voltage
+    // alongside each setpoint so it doesn't fade as the battery sags
     flywheelLeft.getPIDController().setP(ShooterConstants.kFlywheelkP);
-    flywheelLeft.getPIDController().setFF(ShooterConstants.kFlywheelkF);
+    flywheelLeft.getPIDController().setFF(0);
     flywheelLeft.getPIDController().setOutputRange(-1, 1);
+    accelerator.getPIDController().setP(ShooterConstants.kAcceleratorkP);
+    accelerator.getPIDController().setFF(0);
+    accelerator.getPIDController().setOutputRange(-1, 1);
+
+    // Report flywheel velocity often enough to see each shot's dip while enabled
+    flywheelLeft.setStatusFrameProfiles(
+        CANConstants.kFlywheelIdleFrames,
+        CANConstants.kFlywheelFrames,
+        CANConstants.kFlywheelFrames);
+    flywheelRight.setStatusFrameProfiles(
+        CANConstants.kUnreadFrames, CANConstants.kUnreadFrames, CANConstants.kUnreadFrames);
+    accelerator.setStatusFrameProfiles(
+        CANConstants.kAcceleratorIdleFrames,
+        CANConstants.kAcceleratorFrames,
+        CANConstants.kAcceleratorFrames);
+
+    flywheelVelocityChannel =
+        sampler.addChannel(encoder::getVelocity, SensorConstants.kFlywheelPeriodSeconds);
+    flywheelCurrentChannel =
+        sampler.addChannel(flywheelLeft::getOutputCurrent, SensorConstants.kFlywheelPeriodSeconds);
+    acceleratorVelocityChannel =
+        sampler.addChannel(
+            accelerator.getEncoder()::getVelocity, SensorConstants.kAcceleratorPeriodSeconds);
+
+    RateGroup.kControl.add(
+        "Shot detector",
+        shotDetectorTask(
+            shotDetector,
+            sampler,
+            flywheelVelocityChannel,
+            flywheelCurrentChannel,
+            this::getFlywheelSetpoint));
+    RateGroup.kCommands.add("Shooter", this::update);
+    RateGroup.kTelemetry.add("Shooter telemetry", this::updateTelemetry);
+  }
+
+  /**
+   * Makes the control loop task that feeds the shot detector. The flywheel channels are sampled
+   * every control loop, so the detector sees every sample.
+   *
+   * @param detector the detector to feed
+   * @param sampler the sampler reading the flywheel
+   * @param velocityChannel the flywheel velocity channel, in RPM
+   * @param currentChannel the flywheel current channel, in amps
+   * @param setpoint supplies the flywheel setpoint, in RPM
+   * @return the task
+   */
+  static Runnable shotDetectorTask(
+      ShotDetector detector,
+      SensorSampler sampler,
+      int velocityChannel,
+      int currentChannel,
+      DoubleSupplier setpoint) {
+    return () ->
+        detector.addSample(
+            sampler.getTimestamp(velocityChannel),
+            sampler.get(velocityChannel),
+            sampler.get(currentChannel),
+            setpoint.getAsDouble());
   }
 
   public void setFlywheelToRPM(double rpm) {
-    if (rpm == 0) {
+    flywheelSetpoint = limit(rpm, ShooterConstants.kFlywheelMaxRPM);
+    driveFlywheel();
+  }
+
+  /** Runs the flywheel at its setpoint, or at standby speed if it has none and standby is on. */
+  private void driveFlywheel() {
+    if (flywheelSetpoint == 0 && isStandbyActive()) {
+      setVelocity(flywheelLeft, flywheelFeedforward, ShooterConstants.kStandbyRPM);
+    } else if (flywheelSetpoint == 0) {
       flywheelLeft.set(0.0);
     } else {
-      flywheelLeft.getPIDController().setReference(rpm, ControlType.kVelocity);
+      setVelocity(flywheelLeft, flywheelFeedforward, flywheelSetpoint);
     }
   }
 
   public void setAcceleratorToRPM(double rpm) {
-    accelerator.set(rpm / ShooterConstants.kAcceleratorMaxRPM);
+    rpm = limit(rpm, ShooterConstants.kAcceleratorMaxRPM);
+    acceleratorSetpoint = rpm;
+    if (rpm == 0) {
+      accelerator.set(0.0);
+    } else {
+      setVelocity(accelerator, acceleratorFeedforward, rpm);
+    }
+  }
+
+  /**
+   * Keeps a setpoint within what the motor can reach. The onboard loop would otherwise sit
+   * saturated, winding up its integrator, and the readiness gates could never pass. A clamped
+   * setpoint still runs the motor at full output, since its feedforward alone is the full 12 V.
+   */
+  private static double limit(double rpm, double maxRPM) {
+    return Math.max(-maxRPM, Math.min(maxRPM, rpm));
+  }
+
+  private static void setVelocity(
+      CachedSparkMax motor, SimpleMotorFeedforward feedforward, double rpm) {
+    motor.setReference(rpm, ControlType.kVelocity, 0, feedforward.calculate(rpm));
+  }
+
+  /**
+   * Turns standby on or off. While on, a flywheel setpoint of zero holds {@link
+   * ShooterConstants#kStandbyRPM} instead of coasting, unless the battery is too low to spare.
+   *
+   * @param enabled whether to hold standby speed
+   */
+  public void setStandbyEnabled(boolean enabled) {
+    standbyEnabled = enabled;
+  }
+
+  /** @return true if the flywheel is being held at standby speed instead of stopping */
+  public boolean isStandbyActive() {
+    return standbyEnabled && !loadShedding && DriverStation.getInstance().isEnabled();
+  }
+
+  /** @return the flywheel speed last requested, in RPM */
+  public double getFlywheelSetpoint() {
+    return flywheelSetpoint;
+  }
+
+  /** @return the accelerator speed last requested, in RPM */
+  public double getAcceleratorSetpoint() {
+    return acceleratorSetpoint;
+  }
+
+  /** @return the accelerator's measured speed, in RPM */
+  public double getAcceleratorVelocity() {
+    return sampler.get(acceleratorVelocityChannel);
+  }
+
+  /** @return the flywheel's measured speed, in RPM */
+  public double getFlywheelVelocity() {
+    return sampler.get(flywheelVelocityChannel);
   }
 
   public CANEncoder getFlywheelEncoder() {
     return encoder;
   }
 
-  @Override
-  public void periodic() {
+  private void update() {
     if (hoodState == null) {
       setHoodState(HoodState.AUTOLINE_SHOT);
     }
 
+    // Give up standby when the battery sags, and only take it back once it has recovered
+    double batteryVoltage = RobotController.getBatteryVoltage();
+    if (RobotController.isBrownedOut() || batteryVoltage < ShooterConstants.kStandbyShedVolts) {
+      loadShedding = true;
+    } else if (batteryVoltage > ShooterConstants.kStandbyResumeVolts) {
+      loadShedding = false;
+    }
+
     // Make belts not skip lol
-    if (encoder.getVelocity() < ShooterConstants.kLowRPMThreshold) {
+    if (getFlywheelVelocity() < ShooterConstants.kLowRPMThreshold) {
       flywheelLeft.setClosedLoopRampRate(ShooterConstants.kLowRPMRampRate);
     } else {
       flywheelLeft.setClosedLoopRampRate(0.0);
     }
 
-    SmartDashboard.putNumber("Shooter current draw", flywheelLeft.getOutputCurrent());
-
-    // Shot detection
-    // If our current draw is high
-    if (flywheelLeft.getOutputCurrent() >= ShooterConstants.kCurrentDrawnToDetectCompletedShot
-        && Robot.m_robotContainer.m_hopper.isFeeding()) {
-      // If the timer is not started
-      if (currentMonitorTimer.get() == 0) {
-        // Start it
-        currentMonitorTimer.start();
-      }
-
-      // Now that the timer is running
-      // If the timer is gone past the required time
-      if (currentMonitorTimer.get() >= ShooterConstants.kCurrentDrawnTimeWindow) {
-        // Stop and reset the timer, and increment our shot number by 1
-        currentMonitorTimer.stop();
-        currentMonitorTimer.reset();
-        shotsFired++;
-      }
-    } else { // Our current draw is low, so stop the timer
-      currentMonitorTimer.stop();
-      currentMonitorTimer.reset();
+    if (ShooterConstants.kEnableLivePIDTuning) {
+      // Setpoints come from the dashboard, overriding whatever the commands ask for
+      setFlywheelToRPM(SmartDashboard.getNumber("Shooter setpoint (RPM)", 0));
+      setAcceleratorToRPM(SmartDashboard.getNumber("Shooter accelerator RPM", 0));
+    } else {
+      // Standby comes and goes with the robot's mode and the battery, not just with setpoints
+      driveFlywheel();
     }
+  }
 
-    SmartDashboard.putNumber("Shots fired", shotsFired);
-
-    // Live PID tuning
-    final boolean enableLivePIDTuning = true;
-    if (enableLivePIDTuning) {
-      double setpointRPM = SmartDashboard.getNumber("Shooter setpoint (RPM)", 0);
-      double acceleratorRPM = SmartDashboard.getNumber("Shooter accelerator RPM", 0);
-
-      CANPIDController pidController = flywheelLeft.getPIDController();
-      setFlywheelToRPM(setpointRPM);
-
-      SmartDashboard.putNumber("Shooter velocity", encoder.getVelocity());
-      SmartDashboard.putNumber("Shooter error", encoder.getVelocity() - setpointRPM);
-      setAcceleratorToRPM(acceleratorRPM);
-    }
+  private void updateTelemetry() {
+    SmartDashboard.putBoolean("Shooter standby", isStandbyActive());
+    SmartDashboard.putNumber("Shooter current draw", sampler.get(flywheelCurrentChannel));
+    SmartDashboard.putNumber("Shots fired", shotDetector.getShotCount());
+    SmartDashboard.putNumber("Last shot time", shotDetector.getLastShotTime());
+    SmartDashboard.putNumber("Shooter velocity", getFlywheelVelocity());
+    SmartDashboard.putNumber("Shooter error", getFlywheelVelocity() - flywheelSetpoint);
   }
 
   public boolean isVelocityWithinTargetRange(double setpoint, double targetRange) {
-    return setpoint - targetRange <= getFlywheelEncoder().getVelocity()
-        && getFlywheelEncoder().getVelocity() <= setpoint + targetRange;
+    double velocity = getFlywheelVelocity();
+    return setpoint - targetRange <= velocity && velocity <= setpoint + targetRange;
   }
 
   public int getShotsFired() {
-    return shotsFired;
+    return shotDetector.getShotCount();
   }
 
   public void resetShotsFired() {
-    shotsFired = 0;
+    shotDetector.resetShotCount();
+  }
+
+  /** Saves the recent flywheel trace for replaying through {@code ShotDetectorReplay}. */
+  public void saveShotTrace() {
+    File file =
+        new File(
+            ShooterConstants.kShotTraceDirectory,
+            String.format("shots-%d.csv", System.currentTimeMillis()));
+    try {
+      shotDetector.writeTrace(file);
+    } catch (IOException e) {
+      System.out.println("[Shooter] Unable to save shot trace -- " + e);
+    }
   }
 
   public void setHoodState(HoodState newState) {
+    if (newState != hoodState) {
+      lastHoodChangeTime = Timer.getFPGATimestamp();
+    }
     hoodPiston.set(newState.state);
     hoodState = newState;
   }
 
+  /** @return the FPGA time the hood was last moved, in seconds */
+  public double getLastHoodChangeTime() {
+    return lastHoodChangeTime;
+  }
+
   public HoodState getHoodState() {
     return hoodState;
   }
 
   public boolean isAcceleratorRunning() {
-    return accelerator.get() != 0;
+    return acceleratorSetpoint != 0;
   }
 
+  /** @return true if a shot speed has been requested, not counting standby */
   public boolean isFlywheelRunning() {
-    return flywheelLeft.get() != 0 && flywheelRight.get() != 0;
+    return flywheelSetpoint != 0;
   }
 }
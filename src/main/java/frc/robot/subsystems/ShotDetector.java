@@ -0,0 +1,170 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants.ShooterConstants;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Detects shots from the flywheel's velocity and current. A ball passing through the shooter pulls
+ * the flywheel's speed down from its recent peak and spikes its current at about the same time; a
+ * shot is counted when both happen within {@link ShooterConstants#kShotSignatureWindowSeconds} of
+ * each other. After a shot the detector waits for the flywheel to start recovering before looking
+ * for the next one, which lets back-to-back shots be counted even if the flywheel never gets back
+ * to its setpoint in between.
+ *
+ * <p>Whenever the setpoint changes, detection waits until the flywheel has come within {@link
+ * ShooterConstants#kAcceptableRPMRange} of the new one. Slowing down to a lower setpoint would
+ * otherwise look just like a shot: the speed falls from its peak while braking draws current.
+ *
+ * <p>Every sample is also kept in a fixed-size ring buffer of primitive arrays, so recent traces
+ * can be saved and replayed through {@code ShotDetectorReplay}.
+ */
+public final class ShotDetector {
+  private final double[] times, velocities, currents, setpoints;
+  private final boolean[] shots;
+  private int head, size;
+
+  private boolean armed = true;
+  // Whether the flywheel has reached the current setpoint since it was set
+  private boolean settled;
+  private double lastSetpoint;
+  private double peakVelocity, minVelocity;
+  private double velocityDipTime = Double.NaN, currentSpikeTime = Double.NaN;
+
+  private int shotCount;
+  private double lastShotTime = Double.NaN;
+
+  /** @param capacity the number of samples to keep for saving traces */
+  public ShotDetector(int capacity) {
+    times = new double[capacity];
+    velocities = new double[capacity];
+    currents = new double[capacity];
+    setpoints = new double[capacity];
+    shots = new boolean[capacity];
+  }
+
+  /**
+   * Feeds in one sample.
+   *
+   * @param time the time of the sample, in seconds
+   * @param velocity the flywheel velocity, in RPM
+   * @param current the flywheel current, in amps
+   * @param setpoint the flywheel setpoint, in RPM
+   * @return true if this sample completed a shot
+   */
+  public synchronized boolean addSample(
+      double time, double velocity, double current, double setpoint) {
+    boolean shot = classify(time, velocity, current, setpoint);
+
+    times[head] = time;
+    velocities[head] = velocity;
+    currents[head] = current;
+    setpoints[head] = setpoint;
+    shots[head] = shot;
+    head = (head + 1) % times.length;
+    if (size < times.length) {
+      size++;
+    }
+    return shot;
+  }
+
+  private boolean classify(double time, double velocity, double current, double setpoint) {
+    if (setpoint != lastSetpoint) {
+      lastSetpoint = setpoint;
+      settled = false;
+      velocityDipTime = Double.NaN;
+      currentSpikeTime = Double.NaN;
+    }
+    if (setpoint <= 0) {
+      // Nothing can be shot with the flywheel off
+      armed = true;
+      peakVelocity = velocity;
+      velocityDipTime = Double.NaN;
+      currentSpikeTime = Double.NaN;
+      return false;
+    }
+
+    if (!settled) {
+      if (Math.abs(setpoint - velocity) > ShooterConstants.kAcceptableRPMRange) {
+        return false;
+      }
+      settled = true;
+      armed = true;
+      peakVelocity = velocity;
+    }
+
+    if (!armed) {
+      minVelocity = Math.min(minVelocity, velocity);
+      if (velocity >= minVelocity + ShooterConstants.kShotRearmRPM) {
+        armed = true;
+        peakVelocity = velocity;
+      }
+      return false;
+    }
+
+    peakVelocity = Math.max(peakVelocity, velocity);
+    if (Double.isNaN(velocityDipTime)
+        && peakVelocity - velocity >= ShooterConstants.kShotDetectionRPMDrop) {
+      velocityDipTime = time;
+    }
+    if (Double.isNaN(currentSpikeTime)
+        && current >= ShooterConstants.kCurrentDrawnToDetectCompletedShot) {
+      currentSpikeTime = time;
+    }
+
+    // Forget either half of the signature if the other didn't follow in time
+    double window = ShooterConstants.kShotSignatureWindowSeconds;
+    if (Double.isNaN(currentSpikeTime) && time - velocityDipTime > window) {
+      velocityDipTime = Double.NaN;
+      peakVelocity = velocity;
+    }
+    if (Double.isNaN(velocityDipTime) && time - currentSpikeTime > window) {
+      currentSpikeTime = Double.NaN;
+    }
+
+    if (Double.isNaN(velocityDipTime) || Double.isNaN(currentSpikeTime)) {
+      return false;
+    }
+
+    shotCount++;
+    lastShotTime = Math.min(velocityDipTime, currentSpikeTime);
+    armed = false;
+    minVelocity = velocity;
+    velocityDipTime = Double.NaN;
+    currentSpikeTime = Double.NaN;
+    return true;
+  }
+
+  public synchronized int getShotCount() {
+    return shotCount;
+  }
+
+  public synchronized void resetShotCount() {
+    shotCount = 0;
+  }
+
+  /** @return the time the last shot started, or NaN if there hasn't been one */
+  public synchronized double getLastShotTime() {
+    return lastShotTime;
+  }
+
+  /**
+   * Writes the buffered samples as CSV, in the format read by {@code ShotDetectorReplay}. The shot
+   * column marks the detector's own detections, as a starting point for labeling the real shots.
+   *
+   * @param file the file to write
+   */
+  public synchronized void writeTrace(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(file)) {
+      writer.println("time,velocity,current,setpoint,shot");
+      for (int age = 0; age < size; age++) {
+        int i = (head - size + age + times.length) % times.length;
+        writer.printf(
+            "%.4f,%.1f,%.2f,%.1f,%d%n",
+            times[i], velocities[i], currents[i], setpoints[i], shots[i] ? 1 : 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.ShooterConstants;
+import frc.robot.subsystems.Shooter.HoodState;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Shooter setpoints indexed by distance to the target, loaded from a CSV file in the deploy
+ * directory. Flywheel and accelerator speeds are interpolated between rows; the hood state is taken
+ * from the nearest row, and only rows with that hood state are interpolated between.
+ */
+public final class ShotMap {
+  public static final String kFileName = "shot-map.csv";
+
+  /** One set of shooter setpoints. Reused by {@link #lookup(double, Shot)} to avoid allocating. */
+  public static final class Shot {
+    public double flywheelRPM;
+    public double acceleratorRPM;
+    public HoodState hoodState;
+  }
+
+  private final double[] distances, flywheelRPMs, acceleratorRPMs;
+  private final HoodState[] hoodStates;
+
+  private ShotMap(List<String[]> rows) {
+    rows.sort(Comparator.comparingDouble(row -> Double.parseDouble(row[0])));
+    distances = new double[rows.size()];
+    flywheelRPMs = new double[rows.size()];
+    acceleratorRPMs = new double[rows.size()];
+    hoodStates = new HoodState[rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      String[] row = rows.get(i);
+      distances[i] = Double.parseDouble(row[0]);
+      flywheelRPMs[i] = Double.parseDouble(row[1]);
+      acceleratorRPMs[i] = Double.parseDouble(row[2]);
+      hoodStates[i] = HoodState.valueOf(row[3]);
+    }
+  }
+
+  /**
+   * Loads the deployed shot map, falling back to the wall and auto line presets if it is missing or
+   * invalid.
+   *
+   * @return the shot map
+   */
+  public static ShotMap load() {
+    File file = new File(Filesystem.getDeployDirectory(), kFileName);
+    try {
+      List<String[]> rows = new ArrayList<>();
+      for (String line : Files.readAllLines(file.toPath())) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] row = line.split("\\s*,\\s*");
+        if (row.length != 4) {
+          throw new IOException("expected 4 columns, got \"" + line + "\"");
+        }
+        rows.add(row);
+      }
+      if (rows.isEmpty()) {
+        throw new IOException("no rows");
+      }
+      return new ShotMap(rows);
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("[ShotMap] Unable to load " + file + ", using presets -- " + e);
+      List<String[]> presets = new ArrayList<>();
+      presets.add(
+          new String[] {
+            String.valueOf(ShooterConstants.kWallShotDistanceMeters),
+            String.valueOf(ShooterConstants.kWallShotRPM),
+            String.valueOf(ShooterConstants.kAcceleratorRPMWall),
+            HoodState.WALL_SHOT.name()
+          });
+      presets.add(
+          new String[] {
+            String.valueOf(ShooterConstants.kAutoLineDistanceMeters),
+            String.valueOf(ShooterConstants.kAutoLineRPM),
+            String.valueOf(ShooterConstants.kAcceleratorRPMAutoLine),
+            HoodState.AUTOLINE_SHOT.name()
+          });
+      return new ShotMap(presets);
+    }
+  }
+
+  /**
+   * Looks up the setpoints for shooting from the given distance.
+   *
+   * @param distance the distance to the target, in meters
+   * @param shot receives the setpoints
+   */
+  public void lookup(double distance, Shot shot) {
+    int nearest = 0;
+    for (int i = 1; i < distances.length; i++) {
+      if (Math.abs(distances[i] - distance) < Math.abs(distances[nearest] - distance)) {
+        nearest = i;
+      }
+    }
+    HoodState hoodState = hoodStates[nearest];
+
+    // The closest rows on either side that use the same hood state
+    int below = -1;
+    int above = -1;
+    for (int i = 0; i < distances.length; i++) {
+      if (hoodStates[i] != hoodState) {
+        continue;
+      }
+      if (distances[i] <= distance) {
+        below = i;
+      } else if (above == -1) {
+        above = i;
+      }
+    }
+    if (below == -1) {
+      below = above;
+    } else if (above == -1) {
+      above = below;
+    }
+
+    double span = distances[above] - distances[below];
+    double t = span > 0 ? (distance - distances[below]) / span : 0;
+    shot.flywheelRPM = flywheelRPMs[below] + (flywheelRPMs[above] - flywheelRPMs[below]) * t;
+    shot.acceleratorRPM =
+        acceleratorRPMs[below] + (acceleratorRPMs[above] - acceleratorRPMs[below]) * t;
+    shot.hoodState = hoodState;
+  }
+}
@@ -0,0 +1,39 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants.CANConstants;
+
+/**
+ * How often a SPARK MAX sends each of its periodic status frames. Devices get one profile per match
+ * phase (see {@link CachedSparkMax#setStatusFrameProfiles}), chosen by what the code reads from
+ * them in that phase.
+ */
+public final class StatusFrameProfile {
+  public enum Phase {
+    DISABLED,
+    AUTONOMOUS,
+    TELEOP
+  }
+
+  /** Applied output and faults. Followers take their output from their leader's status 0. */
+  public final int status0Ms;
+  /** Velocity, current, temperature and bus voltage. */
+  public final int status1Ms;
+  /** Position. */
+  public final int status2Ms;
+
+  public StatusFrameProfile(int status0Ms, int status1Ms, int status2Ms) {
+    this.status0Ms = status0Ms;
+    this.status1Ms = status1Ms;
+    this.status2Ms = status2Ms;
+  }
+
+  /** @return how many status frames a device on this profile sends each second */
+  public double getFramesPerSecond() {
+    return 1000.0 / status0Ms + 1000.0 / status1Ms + 1000.0 / status2Ms;
+  }
+
+  /** @return the fraction of the CAN bus a device on this profile takes up with status frames */
+  public double getBusLoad() {
+    return getFramesPerSecond() * CANConstants.kBitsPerFrame / CANConstants.kBusBitsPerSecond;
+  }
+}
@@ -0,0 +1,80 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.controller.RamseteController;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.kinematics.DifferentialDriveWheelSpeeds;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import frc.robot.AllocationCounter;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * Compares the per-loop cost of the WPILib follower (what RamseteCommand runs every loop) against
+ * {@link TrajectoryFollower} on a {@link CompiledTrajectory}. Run through the {@code
+ * benchmarkTrajectoryFollower} Gradle task.
+ */
+public final class TrajectoryFollowerBenchmark {
+  private TrajectoryFollowerBenchmark() {}
+
+  public static void main(String... args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    Trajectory trajectory = SneakyPete.goToShootPosition.generateTrajectory();
+    CompiledTrajectory compiled =
+        new CompiledTrajectory(trajectory, AutoConstants.kTrajectorySampleSeconds);
+    double totalTime = trajectory.getTotalTimeSeconds();
+
+    // Follow from slightly off the path so the controller has some error to correct
+    Pose2d robotPose = new Pose2d(0.05, -0.05, Rotation2d.fromDegrees(2));
+    RamseteController controller =
+        new RamseteController(AutoConstants.kRamseteB, AutoConstants.kRamseteZeta);
+    CompiledTrajectory.Sample sample = new CompiledTrajectory.Sample();
+    double[] wheelSpeeds = new double[2];
+
+    for (int pass = 0; pass < 2; pass++) {
+      boolean warmup = pass == 0;
+      double sink = 0;
+
+      long startBytes = AllocationCounter.getAllocatedBytes();
+      long startTime = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        double time = (i * 0.02) % totalTime;
+        DifferentialDriveWheelSpeeds speeds =
+            DriveConstants.kDriveKinematics.toWheelSpeeds(
+                controller.calculate(robotPose, trajectory.sample(time)));
+        sink += speeds.leftMetersPerSecond;
+      }
+      report(warmup, "Trajectory.sample + RamseteController", iterations, startTime, startBytes);
+
+      startBytes = AllocationCounter.getAllocatedBytes();
+      startTime = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        double time = (i * 0.02) % totalTime;
+        compiled.sample(time, sample);
+        TrajectoryFollower.calculateWheelSpeeds(
+            sample,
+            robotPose.getTranslation().getX(),
+            robotPose.getTranslation().getY(),
+            robotPose.getRotation().getRadians(),
+            wheelSpeeds);
+        sink += wheelSpeeds[0];
+      }
+      report(warmup, "CompiledTrajectory + TrajectoryFollower", iterations, startTime, startBytes);
+
+      if (!warmup) {
+        System.out.println("(checksum " + sink + ")");
+      }
+    }
+  }
+
+  private static void report(
+      boolean warmup, String name, int iterations, long startTime, long startBytes) {
+    if (warmup) {
+      return;
+    }
+    double nanosPerLoop = (System.nanoTime() - startTime) / (double) iterations;
+    double bytesPerLoop = AllocationCounter.getAllocatedSince(startBytes) / (double) iterations;
+    System.out.printf("%-40s %8.1f ns/loop %8.1f bytes/loop%n", name, nanosPerLoop, bytesPerLoop);
+  }
+}
@@ -0,0 +1,117 @@
+package frc.robot.subsystems;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import frc.robot.AllocationCounter;
+import frc.robot.Constants.LimelightConstants;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.SensorConstants;
+import frc.robot.Constants.ShooterConstants;
+import frc.robot.RateGroup;
+import org.junit.Test;
+
+/**
+ * Runs the robot's control and command rate groups over simulated loops and fails if they allocate
+ * more than {@link LoopConstants#kCheckedLoopAllocationBudgetBytes} per loop. The groups run the
+ * robot's own tasks: the drivetrain's odometry ({@link DrivePoseTracker#update()}), the {@link
+ * SensorSampler} with the shooter's channels, the shooter's shot detector task and the pose
+ * estimator's vision fix task, on a simulated clock, sensors and camera. Each loop runs the control
+ * group four times and the command group once.
+ *
+ * <p>The hardware reads, the command scheduler and the telemetry publishers need the HAL and
+ * NetworkTables, so they aren't run here; {@link RateGroup} counts the real loops' allocations
+ * against their budgets on the robot.
+ */
+public class LoopAllocationTest {
+  private static final int kLoops = 20_000;
+
+  private static double time;
+  private static double flywheelSetpoint = 4_000;
+  // Camera frames are made by the NetworkTables listener on the robot, not in the loops, so
+  // they're all made up front
+  private static LimelightFrame[] frames;
+  private static int frameIndex;
+
+  @Test
+  public void steadyStateLoopsDontAllocate() {
+    assumeTrue("This JVM can't count allocations", AllocationCounter.isSupported());
+
+    RateGroup.setClock(() -> time);
+    DrivePoseTracker tracker = new DrivePoseTracker(LoopAllocationTest::readDriveSensors);
+    RateGroup.kControl.add("Odometry", tracker::update);
+
+    SensorSampler sampler = SensorSampler.getInstance();
+    int velocityChannel =
+        sampler.addChannel(
+            LoopAllocationTest::readFlywheelVelocity, SensorConstants.kFlywheelPeriodSeconds);
+    int currentChannel = sampler.addChannel(() -> 20, SensorConstants.kFlywheelPeriodSeconds);
+    sampler.addChannel(() -> 1_800, SensorConstants.kAcceleratorPeriodSeconds);
+    RateGroup.kControl.add(
+        "Shot detector",
+        Shooter.shotDetectorTask(
+            new ShotDetector(ShooterConstants.kShotTraceSize),
+            sampler,
+            velocityChannel,
+            currentChannel,
+            () -> flywheelSetpoint));
+
+    RateGroup.kCommands.add(
+        "Pose estimator",
+        new PoseEstimator.FixTask(() -> frames[frameIndex], tracker::addVisionMeasurement));
+    makeFrames(2 * kLoops);
+
+    // The first pass lets the JIT settle, the second is measured
+    double bytesPerLoop = 0;
+    for (int pass = 0; pass < 2; pass++) {
+      long startBytes = AllocationCounter.getAllocatedBytes();
+      for (int loop = 0; loop < kLoops; loop++) {
+        for (int tick = 0; tick < 4; tick++) {
+          time += LoopConstants.kControlPeriodSeconds;
+          RateGroup.kControl.run();
+        }
+        frameIndex++;
+        RateGroup.kCommands.run();
+      }
+      bytesPerLoop = AllocationCounter.getAllocatedSince(startBytes) / (double) kLoops;
+    }
+
+    System.out.println(
+        String.format(
+            "[LoopAllocationTest] %.1f bytes per loop over %d loops, budget %d",
+            bytesPerLoop, kLoops, LoopConstants.kCheckedLoopAllocationBudgetBytes));
+    assertTrue(
+        String.format("Allocated %.1f bytes per loop", bytesPerLoop),
+        bytesPerLoop <= LoopConstants.kCheckedLoopAllocationBudgetBytes);
+  }
+
+  /** A frame per command loop, each received at the loop's time and captured 50 ms before. */
+  private static void makeFrames(int count) {
+    double[] camtran = {0, 0, -120, 0, 0, 0};
+    double loopTime = time;
+    frames = new LimelightFrame[count + 1];
+    frames[0] = LimelightFrame.kEmpty;
+    for (int i = 1; i <= count; i++) {
+      loopTime += 4 * LoopConstants.kControlPeriodSeconds;
+      double latency = 50 - LimelightConstants.kCaptureLatencyMs;
+      frames[i] = new LimelightFrame(i, loopTime, true, 1, 2, 3, 0, latency, camtran);
+    }
+  }
+
+  /** Drives in a slow circle. */
+  private static void readDriveSensors(DriveSample sample) {
+    sample.timestamp = time;
+    sample.heading = Math.toDegrees(Math.IEEEremainder(0.5 * time, 2 * Math.PI));
+    sample.turnRate = -Math.toDegrees(0.5);
+    sample.gyroTimestamp = time;
+    sample.leftPosition = 0.9 * time;
+    sample.rightPosition = 1.1 * time;
+    sample.leftVelocity = 0.9;
+    sample.rightVelocity = 1.1;
+    sample.encoderTimestamp = time;
+  }
+
+  private static double readFlywheelVelocity() {
+    return flywheelSetpoint + 10 * Math.sin(time);
+  }
+}
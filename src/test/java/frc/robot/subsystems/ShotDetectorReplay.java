@@ -0,0 +1,86 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants.ShooterConstants;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the {@link ShotDetector} over recorded traces and reports how well it matches the labeled
+ * shots. Traces are the CSV files written by {@link ShotDetector#writeTrace(File)}, with the shot
+ * column corrected by hand to mark the sample where each real shot starts. Run through the {@code
+ * replayShotDetector} Gradle task.
+ */
+public final class ShotDetectorReplay {
+  private ShotDetectorReplay() {}
+
+  public static void main(String... args) throws IOException {
+    File directory = new File(args.length > 0 ? args[0] : "shot-traces");
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(".csv"));
+    if (files == null || files.length == 0) {
+      System.out.println("[ShotDetectorReplay] No traces found in " + directory);
+      return;
+    }
+    Arrays.sort(files);
+
+    int totalLabeled = 0, totalDetected = 0, totalMatched = 0;
+    double totalLatency = 0, maxLatency = 0;
+    for (File file : files) {
+      List<Double> labeled = new ArrayList<>();
+      List<Double> detected = new ArrayList<>();
+      ShotDetector detector = new ShotDetector(1);
+      for (String line : Files.readAllLines(file.toPath())) {
+        if (line.isEmpty() || line.startsWith("time")) {
+          continue;
+        }
+        String[] columns = line.split(",");
+        double time = Double.parseDouble(columns[0]);
+        if (detector.addSample(
+            time,
+            Double.parseDouble(columns[1]),
+            Double.parseDouble(columns[2]),
+            Double.parseDouble(columns[3]))) {
+          detected.add(time);
+        }
+        if (Integer.parseInt(columns[4].trim()) != 0) {
+          labeled.add(time);
+        }
+      }
+
+      // Match each labeled shot to the first unused detection close enough after it
+      boolean[] used = new boolean[detected.size()];
+      int matched = 0;
+      for (double shot : labeled) {
+        for (int i = 0; i < detected.size(); i++) {
+          double latency = detected.get(i) - shot;
+          if (!used[i]
+              && latency >= -ShooterConstants.kShotSignatureWindowSeconds
+              && latency <= ShooterConstants.kShotReplayMatchSeconds) {
+            used[i] = true;
+            matched++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            break;
+          }
+        }
+      }
+
+      System.out.printf(
+          "%-40s labeled %3d  detected %3d  matched %3d%n",
+          file.getName(), labeled.size(), detected.size(), matched);
+      totalLabeled += labeled.size();
+      totalDetected += detected.size();
+      totalMatched += matched;
+    }
+
+    System.out.printf(
+        "%nprecision %.3f  recall %.3f  latency mean %.1f ms  max %.1f ms%n",
+        totalDetected > 0 ? (double) totalMatched / totalDetected : 0,
+        totalLabeled > 0 ? (double) totalMatched / totalLabeled : 0,
+        totalMatched > 0 ? totalLatency / totalMatched * 1000 : 0,
+        maxLatency * 1000);
+  }
+}